@@ -1,27 +1,97 @@
 package com.lb.im.sdk.application.consumer;
 
+import cn.hutool.core.util.StrUtil;
 import com.alibaba.fastjson.JSONObject;
 import com.lb.im.common.domain.constans.IMConstants;
+import com.lb.im.common.domain.enums.IMListenerType;
 import com.lb.im.common.domain.model.IMSendResult;
+import com.lb.im.sdk.infrastructure.codec.IMPayloadCodec;
+import com.lb.im.sdk.infrastructure.multicaster.MessageListenerMulticaster;
+import com.lb.im.sdk.infrastructure.tracker.IMDeliveryTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
 
 /**
  * 消息结果消费者的基类
- * 提供消息解析的公共功能，被私聊和群聊消息结果消费者继承
+ * 提供消息解析和结果分发的公共功能，被私聊和群聊各优先级通道的消息结果消费者继承
  */
 public class BaseMessageResultConsumer {
 
+    // 载荷压缩标记字段名，与IMStampedReceiveInfo中的字段保持一致
+    private static final String COMPRESSION_KEY = "compression";
+
+    // 消息ID字段名，与IMStampedReceiveInfo中的字段保持一致
+    private static final String MESSAGE_ID_KEY = "messageId";
+
+    // 日志记录器
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    // 消息监听器多播器，用于将消息广播给所有注册的监听器
+    // 延迟注入，收到第一条结果时才创建多播器并收集监听器
+    @Lazy
+    @Autowired
+    protected MessageListenerMulticaster messageListenerMulticaster;
+
+    // 消息投递跟踪器，用于统计端到端投递延迟
+    @Autowired
+    protected IMDeliveryTracker imDeliveryTracker;
+
+    // 消息载荷编解码器，用于解压被压缩的载荷
+    @Autowired
+    protected IMPayloadCodec imPayloadCodec;
+
+    /**
+     * 解析消息并广播给对应类型的监听器
+     *
+     * @param message      从RocketMQ接收到的原始消息字符串
+     * @param listenerType 监听器类型
+     */
+    protected void dispatch(String message, IMListenerType listenerType) {
+        // 检查消息是否为空
+        if (StrUtil.isEmpty(message)) {
+            logger.warn("{}.onMessage|接收到的消息为空", getClass().getSimpleName());
+            return;
+        }
+
+        // 从JSON对象中提取消息内容字段
+        JSONObject event = this.getResultEvent(message);
+        // 将消息内容转换为IMSendResult对象，载荷此时仍未解压
+        IMSendResult<Object> imSendResult = event == null ? null : event.toJavaObject(IMSendResult.class);
+        if (imSendResult == null) {
+            logger.warn("{}.onMessage|转化后的数据为空", getClass().getSimpleName());
+            return;
+        }
+
+        // 与发送记录关联，统计投递延迟，服务端带回消息ID时按消息ID关联
+        imDeliveryTracker.complete(listenerType, imSendResult, event.getLong(MESSAGE_ID_KEY));
+
+        // 没有监听器需要该结果时不再解压和转换载荷
+        if (!messageListenerMulticaster.hasListeners(listenerType, imSendResult)) {
+            return;
+        }
+
+        // 服务端会带回信封上的压缩标记，只有被压缩的载荷才需要解压
+        String compression = event.getString(COMPRESSION_KEY);
+        if (compression != null) {
+            imSendResult.setData(imPayloadCodec.decode(imSendResult.getData(), compression));
+        }
+
+        // 将消息结果广播给所有注册的对应类型监听器
+        messageListenerMulticaster.multicast(listenerType, imSendResult);
+    }
+
     /**
      * 解析消息数据
      * 
      * @param msg 从消息队列接收到的原始JSON字符串
-     * @return 解析后的消息发送结果对象，包含发送状态和内容
+     * @return 消息内容字段，包含发送状态、内容和压缩标记
      */
-    protected IMSendResult<?> getResultMessage(String msg){
+    protected JSONObject getResultEvent(String msg){
         // 将接收到的字符串解析为JSON对象
         JSONObject jsonObject = JSONObject.parseObject(msg);
         // 从JSON对象中提取消息内容字段
-        String eventStr = jsonObject.getString(IMConstants.MSG_KEY);
-        // 将消息内容转换为IMSendResult对象并返回
-        return JSONObject.parseObject(eventStr, IMSendResult.class);
+        return JSONObject.parseObject(jsonObject.getString(IMConstants.MSG_KEY));
     }
 }
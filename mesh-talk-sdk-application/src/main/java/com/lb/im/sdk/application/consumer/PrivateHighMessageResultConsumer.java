@@ -0,0 +1,30 @@
+package com.lb.im.sdk.application.consumer;
+
+import com.lb.im.common.domain.enums.IMListenerType;
+import com.lb.im.sdk.domain.constants.IMSdkConstants;
+import org.apache.rocketmq.spring.annotation.RocketMQMessageListener;
+import org.apache.rocketmq.spring.core.RocketMQListener;
+
+/**
+ * 高优先级私聊消息结果消费者
+ * 负责从高优先级通道消费私聊消息的发送结果，并将结果广播给相应的监听器。
+ * 使用独立的消费者组，结果回调不会排在批量消息的结果之后。
+ */
+@RocketMQMessageListener(
+        consumerGroup = IMSdkConstants.IM_RESULT_PRIVATE_HIGH_CONSUMER_GROUP, // 消费者组名称
+        topic = IMSdkConstants.IM_RESULT_PRIVATE_HIGH_QUEUE,                  // 订阅的主题
+        consumeThreadMax = 64                                                 // 最大消费线程数
+)
+public class PrivateHighMessageResultConsumer extends BaseMessageResultConsumer implements RocketMQListener<String> {
+
+    /**
+     * 处理从消息队列接收到的消息
+     * 
+     * @param message 从RocketMQ接收到的原始消息字符串
+     */
+    @Override
+    public void onMessage(String message) {
+        // 将消息结果广播给所有注册的私聊消息监听器
+        this.dispatch(message, IMListenerType.PRIVATE_MESSAGE);
+    }
+}
@@ -1,9 +1,53 @@
 package com.lb.im.sdk;
 
-import org.springframework.context.annotation.ComponentScan;
-import org.springframework.context.annotation.Configuration;
+import com.lb.im.sdk.client.IMClient;
+import com.lb.im.sdk.client.impl.DefaultIMClient;
+import com.lb.im.sdk.config.IMInfrastructureConfiguration;
+import com.lb.im.sdk.config.IMResultConsumerConfiguration;
+import com.lb.im.sdk.config.RedisConfig;
+import com.lb.im.sdk.infrastructure.config.IMSdkProperties;
+import com.lb.im.sdk.interfaces.sender.IMSender;
+import com.lb.im.sdk.interfaces.sender.impl.DefaultIMSender;
+import com.lb.im.sdk.interfaces.signal.IMSignalSender;
+import com.lb.im.sdk.interfaces.signal.impl.CoalescingIMSignalSender;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
 
-@Configuration
-@ComponentScan("com.lb.im.sdk")
+/**
+ * SDK自动配置入口
+ * 
+ * 显式注册SDK的所有Bean，不依赖宿主应用的包扫描范围：
+ * 1. 配置属性统一绑定到IMSdkProperties（im.sdk前缀）
+ * 2. 基础设施组件见IMInfrastructureConfiguration，发送结果消费者见IMResultConsumerConfiguration
+ * 3. 所有组件都可以由宿主应用声明同类型的Bean替换
+ * 4. 配置类不代理@Bean方法，启动时不生成CGLIB子类，也便于提前编译
+ * 5. 使用@AutoConfiguration声明，宿主应用扫描com.lb时会被自动排除，只通过AutoConfiguration.imports加载，
+ *    保证在RedisAutoConfiguration之后处理；被导入的配置类都不带@Configuration，同样不会被扫描到
+ */
+@AutoConfiguration(after = RedisAutoConfiguration.class)
+@EnableConfigurationProperties(IMSdkProperties.class)
+@Import({RedisConfig.class, IMInfrastructureConfiguration.class, IMResultConsumerConfiguration.class})
 public class IMAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public IMSender imSender() {
+        return new DefaultIMSender();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public IMSignalSender imSignalSender() {
+        return new CoalescingIMSignalSender();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public IMClient imClient() {
+        return new DefaultIMClient();
+    }
 }
@@ -3,7 +3,13 @@ package com.lb.im.sdk.client;
 import com.lb.im.common.domain.enums.IMTerminalType;
 import com.lb.im.common.domain.model.IMGroupMessage;
 import com.lb.im.common.domain.model.IMPrivateMessage;
+import com.lb.im.sdk.domain.enums.IMMessagePriority;
+import com.lb.im.sdk.domain.listener.IMPresenceListener;
+import com.lb.im.sdk.domain.model.IMBroadcastMessage;
+import com.lb.im.sdk.domain.model.IMSignal;
+import com.lb.im.sdk.infrastructure.presence.IMPresenceSubscription;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -23,6 +29,15 @@ public interface IMClient {
      */
     <T> void sendPrivateMessage(IMPrivateMessage<T> message);
 
+    /**
+     * 按指定优先级发送私聊消息
+     * 
+     * @param message 私聊消息对象，包含发送者、接收者和消息内容等信息
+     * @param priority 消息优先级，实时聊天使用HIGH，系统通知等批量消息使用BULK
+     * @param <T> 消息内容的类型参数
+     */
+    <T> void sendPrivateMessage(IMPrivateMessage<T> message, IMMessagePriority priority);
+
     /**
      * 发送群聊消息
      * 
@@ -31,6 +46,58 @@ public interface IMClient {
      */
     <T> void sendGroupMessage(IMGroupMessage<T> message);
 
+    /**
+     * 按指定优先级发送群聊消息
+     * 
+     * @param message 群聊消息对象，包含发送者、群组ID和消息内容等信息
+     * @param priority 消息优先级，实时聊天使用HIGH，系统通知等批量消息使用BULK
+     * @param <T> 消息内容的类型参数
+     */
+    <T> void sendGroupMessage(IMGroupMessage<T> message, IMMessagePriority priority);
+
+    /**
+     * 按群组ID发送群聊消息
+     * 
+     * 成员数量达到im.sdk.group.fan-out-on-read-threshold或未传入成员列表时，
+     * 每个存活的服务端只发送一份，由服务端投递给本机的群成员，不产生逐个成员的发送结果回执
+     * 
+     * @param groupId 群组ID
+     * @param message 群聊消息对象，包含发送者、群成员和消息内容等信息
+     * @param <T> 消息内容的类型参数
+     */
+    <T> void sendGroupMessage(Long groupId, IMGroupMessage<T> message);
+
+    /**
+     * 按群组ID和指定优先级发送群聊消息
+     * 
+     * @param groupId 群组ID
+     * @param message 群聊消息对象，包含发送者、群成员和消息内容等信息
+     * @param priority 消息优先级，实时聊天使用HIGH，系统通知等批量消息使用BULK
+     * @param <T> 消息内容的类型参数
+     */
+    <T> void sendGroupMessage(Long groupId, IMGroupMessage<T> message, IMMessagePriority priority);
+
+    /**
+     * 向所有在线用户广播消息
+     * 
+     * 不需要传入接收用户列表，可选按终端类型和用户ID区间过滤
+     * 
+     * @param message 广播消息对象，包含发送者、过滤条件和消息内容
+     * @param <T> 消息内容的类型参数
+     */
+    <T> void broadcast(IMBroadcastMessage<T> message);
+
+    /**
+     * 发送临时信号
+     * 
+     * 正在输入、已读回执等信号使用该方法，不跟踪发送结果，接收者不在线时直接丢弃。
+     * 同一发送者发给同一接收者的同类信号在合并窗口内只发送最后一个。
+     * 
+     * @param signal 临时信号，包含发送者、接收者、信号类型和内容
+     * @param <T> 信号内容的类型参数
+     */
+    <T> void sendSignal(IMSignal<T> signal);
+
     /**
      * 检查指定用户是否在线
      * 
@@ -54,4 +121,14 @@ public interface IMClient {
      * @return 用户ID到在线终端类型列表的映射，键为用户ID，值为该用户当前在线的终端类型列表
      */
     Map<Long, List<IMTerminalType>> getOnlineTerminal(List<Long> userIds);
+
+    /**
+     * 订阅用户的在线状态变化
+     * 用户上线、下线或在线终端变化时主动推送事件，取代定时轮询在线状态
+     * 
+     * @param userIds 需要订阅的用户ID列表
+     * @param listener 在线状态变化监听器
+     * @return 订阅句柄，可增减订阅的用户、读取当前在线终端或取消订阅
+     */
+    IMPresenceSubscription subscribePresence(Collection<Long> userIds, IMPresenceListener listener);
 }
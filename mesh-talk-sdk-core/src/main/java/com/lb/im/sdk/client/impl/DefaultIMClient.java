@@ -4,10 +4,17 @@ import com.lb.im.common.domain.enums.IMTerminalType;
 import com.lb.im.common.domain.model.IMGroupMessage;
 import com.lb.im.common.domain.model.IMPrivateMessage;
 import com.lb.im.sdk.client.IMClient;
+import com.lb.im.sdk.domain.enums.IMMessagePriority;
+import com.lb.im.sdk.domain.listener.IMPresenceListener;
+import com.lb.im.sdk.domain.model.IMBroadcastMessage;
+import com.lb.im.sdk.domain.model.IMSignal;
+import com.lb.im.sdk.infrastructure.presence.IMPresenceService;
+import com.lb.im.sdk.infrastructure.presence.IMPresenceSubscription;
 import com.lb.im.sdk.interfaces.sender.IMSender;
+import com.lb.im.sdk.interfaces.signal.IMSignalSender;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -18,7 +25,6 @@ import java.util.Map;
  * 采用代理模式，将所有方法调用委托给IMSender接口的实现类，
  * 实现了客户端接口与具体消息发送实现的解耦，便于维护和扩展。
  */
-@Service
 public class DefaultIMClient implements IMClient {
 
     /**
@@ -27,6 +33,18 @@ public class DefaultIMClient implements IMClient {
     @Autowired
     private IMSender imSender;
 
+    /**
+     * 临时信号发送器，负责合并和批量发送临时信号
+     */
+    @Autowired
+    private IMSignalSender imSignalSender;
+
+    /**
+     * 在线状态订阅服务，负责推送订阅用户的上下线事件
+     */
+    @Autowired
+    private IMPresenceService imPresenceService;
+
     /**
      * 发送私聊消息
      * 将请求委托给IMSender处理
@@ -38,6 +56,18 @@ public class DefaultIMClient implements IMClient {
         imSender.sendPrivateMessage(message);
     }
 
+    /**
+     * 按指定优先级发送私聊消息
+     * 将请求委托给IMSender处理
+     * 
+     * @param message 私聊消息对象
+     * @param priority 消息优先级
+     */
+    @Override
+    public <T> void sendPrivateMessage(IMPrivateMessage<T> message, IMMessagePriority priority) {
+        imSender.sendPrivateMessage(message, priority);
+    }
+
     /**
      * 发送群聊消息
      * 将请求委托给IMSender处理
@@ -49,6 +79,65 @@ public class DefaultIMClient implements IMClient {
         imSender.sendGroupMessage(message);
     }
 
+    /**
+     * 按指定优先级发送群聊消息
+     * 将请求委托给IMSender处理
+     * 
+     * @param message 群聊消息对象
+     * @param priority 消息优先级
+     */
+    @Override
+    public <T> void sendGroupMessage(IMGroupMessage<T> message, IMMessagePriority priority) {
+        imSender.sendGroupMessage(message, priority);
+    }
+
+    /**
+     * 按群组ID发送群聊消息
+     * 将请求委托给IMSender处理
+     * 
+     * @param groupId 群组ID
+     * @param message 群聊消息对象
+     */
+    @Override
+    public <T> void sendGroupMessage(Long groupId, IMGroupMessage<T> message) {
+        imSender.sendGroupMessage(groupId, message);
+    }
+
+    /**
+     * 按群组ID和指定优先级发送群聊消息
+     * 将请求委托给IMSender处理
+     * 
+     * @param groupId 群组ID
+     * @param message 群聊消息对象
+     * @param priority 消息优先级
+     */
+    @Override
+    public <T> void sendGroupMessage(Long groupId, IMGroupMessage<T> message, IMMessagePriority priority) {
+        imSender.sendGroupMessage(groupId, message, priority);
+    }
+
+    /**
+     * 向所有在线用户广播消息
+     * 将请求委托给IMSender处理
+     * 
+     * @param message 广播消息对象
+     */
+    @Override
+    public <T> void broadcast(IMBroadcastMessage<T> message) {
+        imSender.broadcast(message);
+    }
+
+    /**
+     * 发送临时信号
+     * 将请求委托给IMSignalSender处理
+     * 
+     * @param signal 临时信号
+     */
+    @Override
+    public <T> void sendSignal(IMSignal<T> signal) {
+        imSignalSender.sendSignal(signal);
+    }
+
     /**
      * 检查用户是否在线
      * 将请求委托给IMSender处理
@@ -84,4 +173,17 @@ public class DefaultIMClient implements IMClient {
     public Map<Long, List<IMTerminalType>> getOnlineTerminal(List<Long> userIds) {
         return imSender.getOnlineTerminal(userIds);
     }
+
+    /**
+     * 订阅用户的在线状态变化
+     * 将请求委托给IMPresenceService处理
+     * 
+     * @param userIds 用户ID列表
+     * @param listener 在线状态变化监听器
+     * @return 订阅句柄
+     */
+    @Override
+    public IMPresenceSubscription subscribePresence(Collection<Long> userIds, IMPresenceListener listener) {
+        return imPresenceService.subscribe(userIds, listener);
+    }
 }
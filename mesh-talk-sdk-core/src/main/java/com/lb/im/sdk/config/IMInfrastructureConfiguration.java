@@ -0,0 +1,103 @@
+package com.lb.im.sdk.config;
+
+import com.lb.im.sdk.domain.listener.OfflineMessageSink;
+import com.lb.im.sdk.infrastructure.codec.IMPayloadCodec;
+import com.lb.im.sdk.infrastructure.codec.impl.DefaultIMPayloadCodec;
+import com.lb.im.sdk.infrastructure.metrics.IMMetrics;
+import com.lb.im.sdk.infrastructure.multicaster.MessageListenerMulticaster;
+import com.lb.im.sdk.infrastructure.multicaster.impl.DefaultMessageListenerMulticaster;
+import com.lb.im.sdk.infrastructure.presence.IMPresenceService;
+import com.lb.im.sdk.infrastructure.presence.impl.RedisIMPresenceService;
+import com.lb.im.sdk.infrastructure.route.IMRouteRepository;
+import com.lb.im.sdk.infrastructure.route.impl.RedisIMRouteRepository;
+import com.lb.im.sdk.infrastructure.server.IMServerRegistry;
+import com.lb.im.sdk.infrastructure.server.impl.DefaultIMServerRegistry;
+import com.lb.im.sdk.infrastructure.spool.IMOfflineSpool;
+import com.lb.im.sdk.infrastructure.spool.impl.MappedIMOfflineSpool;
+import com.lb.im.sdk.infrastructure.spool.impl.MulticastOfflineMessageSink;
+import com.lb.im.sdk.infrastructure.tracker.IMDeliveryTracker;
+import com.lb.im.sdk.infrastructure.tracker.impl.DefaultIMDeliveryTracker;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Lazy;
+
+/**
+ * SDK基础设施组件配置
+ * 
+ * 每个组件都可以由宿主应用声明同类型的Bean替换，替换后不再创建默认实现。
+ * 只由IMAutoConfiguration导入，不带@Configuration，避免被宿主应用的包扫描提前注册。
+ */
+public class IMInfrastructureConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public IMMetrics imMetrics() {
+        return new IMMetrics();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public IMRouteRepository imRouteRepository() {
+        return new RedisIMRouteRepository();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public IMServerRegistry imServerRegistry() {
+        return new DefaultIMServerRegistry();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public IMDeliveryTracker imDeliveryTracker() {
+        return new DefaultIMDeliveryTracker();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public IMPayloadCodec imPayloadCodec() {
+        return new DefaultIMPayloadCodec();
+    }
+
+    /**
+     * 在线状态订阅服务
+     * 第一次订阅时才建立Redis订阅连接
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public IMPresenceService imPresenceService() {
+        return new RedisIMPresenceService();
+    }
+
+    /**
+     * 离线消息暂存，im.sdk.spool.enabled=true时启用
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "im.sdk.spool", name = "enabled", havingValue = "true")
+    public IMOfflineSpool imOfflineSpool() {
+        return new MappedIMOfflineSpool();
+    }
+
+    /**
+     * 默认的离线消息存储，业务方没有提供时把离线消息回放给NOT_ONLINE监听器
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "im.sdk.spool", name = "enabled", havingValue = "true")
+    public OfflineMessageSink offlineMessageSink() {
+        return new MulticastOfflineMessageSink();
+    }
+
+    /**
+     * 消息监听器多播器
+     * 创建时需要收集所有监听器并解析泛型类型，延迟到第一次分发发送结果时再创建
+     */
+    @Bean
+    @Lazy
+    @ConditionalOnMissingBean
+    public MessageListenerMulticaster messageListenerMulticaster() {
+        return new DefaultMessageListenerMulticaster();
+    }
+}
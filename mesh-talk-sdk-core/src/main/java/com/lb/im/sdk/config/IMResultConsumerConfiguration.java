@@ -0,0 +1,78 @@
+package com.lb.im.sdk.config;
+
+import com.lb.im.sdk.application.consumer.GroupBulkMessageResultConsumer;
+import com.lb.im.sdk.application.consumer.GroupHighMessageResultConsumer;
+import com.lb.im.sdk.application.consumer.GroupMessageResultConsumer;
+import com.lb.im.sdk.application.consumer.PrivateBulkMessageResultConsumer;
+import com.lb.im.sdk.application.consumer.PrivateHighMessageResultConsumer;
+import com.lb.im.sdk.application.consumer.PrivateMessageResultConsumer;
+import org.apache.rocketmq.spring.core.RocketMQListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+/**
+ * 发送结果消费者配置
+ * 
+ * 仅在使用RocketMQ作为消息队列时启用。只发送消息、不关心发送结果的服务
+ * 可以通过im.sdk.consumer.enabled=false关闭，启动时不再创建任何消费者；
+ * 只使用普通优先级的服务可以通过im.sdk.consumer.priority-lanes-enabled=false
+ * 只保留普通通道的两个消费者。
+ * 
+ * 注意：RocketMQ在容器启动时会为每个带@RocketMQMessageListener的Bean创建监听容器，
+ * 因此消费者不能延迟创建，只能按配置决定是否创建。
+ * 
+ * 只由IMAutoConfiguration导入，各层都不带@Configuration，避免被宿主应用的包扫描提前注册；
+ * 内部配置类通过@Import显式引入，外层条件不满足时不会处理。
+ */
+@ConditionalOnClass(RocketMQListener.class)
+@ConditionalOnProperty(name = "message.mq.type", havingValue = "rocketmq")
+@Import(IMResultConsumerConfiguration.DefaultLaneConfiguration.class)
+public class IMResultConsumerConfiguration {
+
+    /**
+     * 普通通道的发送结果消费者
+     */
+    @ConditionalOnProperty(prefix = "im.sdk.consumer", name = "enabled", havingValue = "true", matchIfMissing = true)
+    @Import(DefaultLaneConfiguration.PriorityLaneConfiguration.class)
+    public static class DefaultLaneConfiguration {
+
+        @Bean
+        public PrivateMessageResultConsumer privateMessageResultConsumer() {
+            return new PrivateMessageResultConsumer();
+        }
+
+        @Bean
+        public GroupMessageResultConsumer groupMessageResultConsumer() {
+            return new GroupMessageResultConsumer();
+        }
+
+        /**
+         * 高优先级和批量通道的发送结果消费者
+         */
+        @ConditionalOnProperty(prefix = "im.sdk.consumer", name = "priority-lanes-enabled", havingValue = "true", matchIfMissing = true)
+        public static class PriorityLaneConfiguration {
+
+            @Bean
+            public PrivateHighMessageResultConsumer privateHighMessageResultConsumer() {
+                return new PrivateHighMessageResultConsumer();
+            }
+
+            @Bean
+            public PrivateBulkMessageResultConsumer privateBulkMessageResultConsumer() {
+                return new PrivateBulkMessageResultConsumer();
+            }
+
+            @Bean
+            public GroupHighMessageResultConsumer groupHighMessageResultConsumer() {
+                return new GroupHighMessageResultConsumer();
+            }
+
+            @Bean
+            public GroupBulkMessageResultConsumer groupBulkMessageResultConsumer() {
+                return new GroupBulkMessageResultConsumer();
+            }
+        }
+    }
+}
@@ -1,16 +1,21 @@
 package com.lb.im.sdk.config;
 
 import com.alibaba.fastjson.support.spring.FastJsonRedisSerializer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
-@Configuration("Mesh-Talk-RedisConfig")
+/**
+ * SDK的Redis配置
+ * 
+ * 只由IMAutoConfiguration导入，不带@Configuration，避免被宿主应用的包扫描提前注册。
+ */
 public class RedisConfig {
 
     @Bean("IMRedisTemplate")
+    @ConditionalOnMissingBean(name = "IMRedisTemplate")
     public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory redisConnectionFactory) {
         RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
         redisTemplate.setConnectionFactory(redisConnectionFactory);
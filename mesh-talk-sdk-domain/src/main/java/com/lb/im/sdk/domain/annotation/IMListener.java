@@ -8,6 +8,12 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+/**
+ * 发送结果监听器注解
+ * <p>
+ * 除监听器类型外，还可以声明过滤条件，多播器启动时把过滤条件编译进分发路由，
+ * 不满足条件的结果不会转换，也不会交给该监听器。各条件为空表示不限制，同时声明时需要全部满足。
+ */
 @Target({ElementType.TYPE,ElementType.FIELD})
 @Retention(RetentionPolicy.RUNTIME)
 @Component
@@ -15,4 +21,19 @@ public @interface IMListener {
 
     IMListenerType listenerType();
 
+    /**
+     * 只接收这些状态码的结果，取值见IMSendCode，例如只关心失败或不在线的结果
+     */
+    int[] codes() default {};
+
+    /**
+     * 只接收发送者为这些终端类型的结果，取值见IMTerminalType
+     */
+    int[] senderTerminals() default {};
+
+    /**
+     * 只接收接收者为这些终端类型的结果，取值见IMTerminalType
+     */
+    int[] receiverTerminals() default {};
+
 }
@@ -0,0 +1,82 @@
+package com.lb.im.sdk.domain.constants;
+
+import com.lb.im.common.domain.constans.IMConstants;
+
+/**
+ * SDK内部使用的常量
+ * <p>
+ * 公共常量定义在IMConstants中，这里只放SDK在其基础上扩展出来的队列、消费者组等名称，
+ * 需要与IM服务端保持一致。
+ */
+public final class IMSdkConstants {
+
+    private IMSdkConstants() {
+    }
+
+    /**
+     * 高优先级私聊消息结果队列
+     */
+    public static final String IM_RESULT_PRIVATE_HIGH_QUEUE = IMConstants.IM_RESULT_PRIVATE_QUEUE + "_HIGH";
+
+    /**
+     * 批量私聊消息结果队列
+     */
+    public static final String IM_RESULT_PRIVATE_BULK_QUEUE = IMConstants.IM_RESULT_PRIVATE_QUEUE + "_BULK";
+
+    /**
+     * 高优先级群聊消息结果队列
+     */
+    public static final String IM_RESULT_GROUP_HIGH_QUEUE = IMConstants.IM_RESULT_GROUP_QUEUE + "_HIGH";
+
+    /**
+     * 批量群聊消息结果队列
+     */
+    public static final String IM_RESULT_GROUP_BULK_QUEUE = IMConstants.IM_RESULT_GROUP_QUEUE + "_BULK";
+
+    /**
+     * 高优先级私聊消息结果消费者组
+     */
+    public static final String IM_RESULT_PRIVATE_HIGH_CONSUMER_GROUP = IMConstants.IM_RESULT_PRIVATE_CONSUMER_GROUP + "_HIGH";
+
+    /**
+     * 批量私聊消息结果消费者组
+     */
+    public static final String IM_RESULT_PRIVATE_BULK_CONSUMER_GROUP = IMConstants.IM_RESULT_PRIVATE_CONSUMER_GROUP + "_BULK";
+
+    /**
+     * 高优先级群聊消息结果消费者组
+     */
+    public static final String IM_RESULT_GROUP_HIGH_CONSUMER_GROUP = IMConstants.IM_RESULT_GROUP_CONSUMER_GROUP + "_HIGH";
+
+    /**
+     * 批量群聊消息结果消费者组
+     */
+    public static final String IM_RESULT_GROUP_BULK_CONSUMER_GROUP = IMConstants.IM_RESULT_GROUP_CONSUMER_GROUP + "_BULK";
+
+    /**
+     * IM服务端心跳有序集合，成员为serverId，分值为最近一次心跳的时间戳（毫秒，取Redis服务器时间）
+     * IM服务端启动后定时更新自己的分值，宕机后分值不再更新，超过超时时间即视为下线
+     */
+    public static final String IM_SERVER_HEARTBEAT = "im:server:heartbeat";
+
+    /**
+     * 全员广播消息队列，完整格式：im_message_broadcast:serverId
+     */
+    public static final String IM_MESSAGE_BROADCAST_QUEUE = "im_message_broadcast";
+
+    /**
+     * 超大群的群聊消息队列，完整格式：im_message_group_broadcast{优先级后缀}:serverId
+     */
+    public static final String IM_MESSAGE_GROUP_BROADCAST_QUEUE = "im_message_group_broadcast";
+
+    /**
+     * 临时信号队列，完整格式：im_message_signal:serverId
+     */
+    public static final String IM_MESSAGE_SIGNAL_QUEUE = "im_message_signal";
+
+    /**
+     * Redis键空间通知频道前缀，完整格式：__keyspace@db__:key
+     * 需要Redis开启notify-keyspace-events（至少包含K、g、$、x）
+     */
+    public static final String REDIS_KEYSPACE_CHANNEL_PREFIX = "__keyspace@";
+}
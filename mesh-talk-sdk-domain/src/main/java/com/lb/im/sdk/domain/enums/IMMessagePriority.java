@@ -0,0 +1,61 @@
+package com.lb.im.sdk.domain.enums;
+
+/**
+ * 消息优先级
+ * <p>
+ * 不同优先级的消息投递到各自独立的队列（通道），避免批量通知、营销推送等大流量消息
+ * 在队列中堆积，拖慢用户之间实时聊天消息的投递。
+ * <p>
+ * NORMAL沿用原有队列名称，保证未升级的IM服务端仍可正常消费；
+ * 其余优先级在原队列名称后追加后缀，形成独立的队列。
+ */
+public enum IMMessagePriority {
+
+    /**
+     * 高优先级，用于用户之间的实时交互消息
+     */
+    HIGH("_HIGH"),
+
+    /**
+     * 普通优先级，默认值，使用原有队列
+     */
+    NORMAL(""),
+
+    /**
+     * 批量优先级，用于系统通知、营销推送等大批量消息
+     */
+    BULK("_BULK");
+
+    /**
+     * 队列名称后缀
+     */
+    private final String queueSuffix;
+
+    IMMessagePriority(String queueSuffix) {
+        this.queueSuffix = queueSuffix;
+    }
+
+    public String getQueueSuffix() {
+        return queueSuffix;
+    }
+
+    /**
+     * 根据基础队列名称获取该优先级对应的队列名称
+     *
+     * @param baseQueue 基础队列名称，例如IM_MESSAGE_PRIVATE_QUEUE
+     * @return 该优先级对应的队列名称
+     */
+    public String getQueue(String baseQueue) {
+        return queueSuffix.isEmpty() ? baseQueue : baseQueue + queueSuffix;
+    }
+
+    /**
+     * 空值按普通优先级处理
+     *
+     * @param priority 优先级，可以为空
+     * @return 非空的优先级
+     */
+    public static IMMessagePriority nullToNormal(IMMessagePriority priority) {
+        return priority == null ? NORMAL : priority;
+    }
+}
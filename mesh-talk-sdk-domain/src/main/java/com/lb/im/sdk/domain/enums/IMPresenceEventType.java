@@ -0,0 +1,22 @@
+package com.lb.im.sdk.domain.enums;
+
+/**
+ * 在线状态变化类型
+ */
+public enum IMPresenceEventType {
+
+    /**
+     * 用户上线，此前没有任何在线终端
+     */
+    ONLINE,
+
+    /**
+     * 用户下线，已没有任何在线终端
+     */
+    OFFLINE,
+
+    /**
+     * 用户仍然在线，但在线终端发生变化
+     */
+    TERMINAL_CHANGE
+}
@@ -0,0 +1,15 @@
+package com.lb.im.sdk.domain.listener;
+
+import com.lb.im.sdk.domain.model.IMPresenceEvent;
+
+/**
+ * 在线状态变化监听器
+ */
+public interface IMPresenceListener {
+
+    /**
+     * 处理订阅用户的在线状态变化
+     * 在Redis订阅线程中回调，耗时的处理应转交给业务线程池
+     */
+    void onPresenceChange(IMPresenceEvent event);
+}
@@ -0,0 +1,22 @@
+package com.lb.im.sdk.domain.listener;
+
+import com.lb.im.sdk.domain.model.IMOfflineMessage;
+
+import java.util.List;
+
+/**
+ * 离线消息存储
+ * 
+ * 启用离线暂存后，后台线程把暂存日志中的离线消息按批交给该接口，
+ * 业务方实现为批量写库等操作。没有实现时，离线消息按批回放给NOT_ONLINE监听器。
+ */
+public interface OfflineMessageSink {
+
+    /**
+     * 批量保存离线消息
+     * 抛出异常时这一批会在稍后重试，实现需要能容忍重复写入
+     *
+     * @param messages 离线消息，按写入暂存日志的顺序排列
+     */
+    void store(List<IMOfflineMessage> messages) throws Exception;
+}
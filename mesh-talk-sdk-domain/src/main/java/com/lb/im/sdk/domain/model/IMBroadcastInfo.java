@@ -0,0 +1,62 @@
+package com.lb.im.sdk.domain.model;
+
+import com.lb.im.common.domain.model.IMUserInfo;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 全员广播信封
+ * <p>
+ * 每个存活的IM服务端收到一份，接收者列表为空，
+ * 由服务端按照终端类型和用户ID区间过滤本机的在线连接后投递。
+ */
+public class IMBroadcastInfo extends IMStampedReceiveInfo {
+
+    /**
+     * 接收终端类型，为空表示所有终端
+     */
+    private List<Integer> receiveTerminals;
+
+    /**
+     * 接收用户ID下限（包含），为空表示不限制
+     */
+    private Long minUserId;
+
+    /**
+     * 接收用户ID上限（包含），为空表示不限制
+     */
+    private Long maxUserId;
+
+    public IMBroadcastInfo(Integer cmd, IMUserInfo sender, IMPayload payload, IMBroadcastMessage<?> message) {
+        // 广播不需要逐个用户的发送结果回执
+        super(cmd, sender, Collections.emptyList(), false, payload);
+        this.receiveTerminals = message.getReceiveTerminals();
+        this.minUserId = message.getMinUserId();
+        this.maxUserId = message.getMaxUserId();
+    }
+
+    public List<Integer> getReceiveTerminals() {
+        return receiveTerminals;
+    }
+
+    public void setReceiveTerminals(List<Integer> receiveTerminals) {
+        this.receiveTerminals = receiveTerminals;
+    }
+
+    public Long getMinUserId() {
+        return minUserId;
+    }
+
+    public void setMinUserId(Long minUserId) {
+        this.minUserId = minUserId;
+    }
+
+    public Long getMaxUserId() {
+        return maxUserId;
+    }
+
+    public void setMaxUserId(Long maxUserId) {
+        this.maxUserId = maxUserId;
+    }
+}
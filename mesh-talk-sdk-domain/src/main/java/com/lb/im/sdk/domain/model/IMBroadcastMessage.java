@@ -0,0 +1,86 @@
+package com.lb.im.sdk.domain.model;
+
+import com.lb.im.common.domain.model.IMUserInfo;
+
+import java.util.List;
+
+/**
+ * 全员广播消息
+ * <p>
+ * 向所有在线用户推送消息，不需要调用方传入接收用户列表。
+ * SDK只向每个存活的IM服务端发送一份广播信封，由服务端投递给本机的在线连接，
+ * 发送成本与服务端数量成正比，而不是与在线用户数量成正比。
+ * <p>
+ * 可选的过滤条件：
+ * 1. 接收终端类型，为空表示所有终端
+ * 2. 用户ID区间[minUserId, maxUserId]，任一端为空表示该端不限制
+ *
+ * @param <T> 消息内容的类型参数
+ */
+public class IMBroadcastMessage<T> {
+
+    /**
+     * 发送者信息
+     */
+    private IMUserInfo sender;
+
+    /**
+     * 接收终端类型，为空表示所有终端
+     */
+    private List<Integer> receiveTerminals;
+
+    /**
+     * 接收用户ID下限（包含），为空表示不限制
+     */
+    private Long minUserId;
+
+    /**
+     * 接收用户ID上限（包含），为空表示不限制
+     */
+    private Long maxUserId;
+
+    /**
+     * 消息内容
+     */
+    private T data;
+
+    public IMUserInfo getSender() {
+        return sender;
+    }
+
+    public void setSender(IMUserInfo sender) {
+        this.sender = sender;
+    }
+
+    public List<Integer> getReceiveTerminals() {
+        return receiveTerminals;
+    }
+
+    public void setReceiveTerminals(List<Integer> receiveTerminals) {
+        this.receiveTerminals = receiveTerminals;
+    }
+
+    public Long getMinUserId() {
+        return minUserId;
+    }
+
+    public void setMinUserId(Long minUserId) {
+        this.minUserId = minUserId;
+    }
+
+    public Long getMaxUserId() {
+        return maxUserId;
+    }
+
+    public void setMaxUserId(Long maxUserId) {
+        this.maxUserId = maxUserId;
+    }
+
+    public T getData() {
+        return data;
+    }
+
+    public void setData(T data) {
+        this.data = data;
+    }
+}
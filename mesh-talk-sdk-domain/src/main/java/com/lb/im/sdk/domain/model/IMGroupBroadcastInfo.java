@@ -0,0 +1,48 @@
+package com.lb.im.sdk.domain.model;
+
+import com.lb.im.common.domain.model.IMUserInfo;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 超大群的群聊信封
+ * <p>
+ * 成员数量超过阈值的群不再逐个查询成员路由，每个存活的IM服务端收到一份，接收者列表为空，
+ * 由服务端查找本机连接中属于该群的成员后投递（读时扇出），发送者本人由服务端跳过。
+ */
+public class IMGroupBroadcastInfo extends IMStampedReceiveInfo {
+
+    /**
+     * 群组ID
+     */
+    private Long groupId;
+
+    /**
+     * 接收终端类型，为空表示所有终端
+     */
+    private List<Integer> receiveTerminals;
+
+    public IMGroupBroadcastInfo(Integer cmd, IMUserInfo sender, IMPayload payload, Long groupId, List<Integer> receiveTerminals) {
+        // 服务端扇出时无法逐个成员回执发送结果
+        super(cmd, sender, Collections.emptyList(), false, payload);
+        this.groupId = groupId;
+        this.receiveTerminals = receiveTerminals;
+    }
+
+    public Long getGroupId() {
+        return groupId;
+    }
+
+    public void setGroupId(Long groupId) {
+        this.groupId = groupId;
+    }
+
+    public List<Integer> getReceiveTerminals() {
+        return receiveTerminals;
+    }
+
+    public void setReceiveTerminals(List<Integer> receiveTerminals) {
+        this.receiveTerminals = receiveTerminals;
+    }
+}
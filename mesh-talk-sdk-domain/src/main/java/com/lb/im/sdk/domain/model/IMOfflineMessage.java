@@ -0,0 +1,46 @@
+package com.lb.im.sdk.domain.model;
+
+import com.lb.im.common.domain.enums.IMListenerType;
+import com.lb.im.common.domain.model.IMSendResult;
+
+/**
+ * 离线消息记录
+ * 
+ * 接收者不在线时的发送结果，从离线暂存日志中回放给离线消息存储。
+ * 经过暂存日志后消息内容为JSON形式，需要按业务类型自行转换。
+ */
+public class IMOfflineMessage {
+
+    /**
+     * 消息类型，PRIVATE_MESSAGE或GROUP_MESSAGE
+     */
+    private final IMListenerType listenerType;
+
+    /**
+     * 状态为NOT_ONLINE的发送结果
+     */
+    private final IMSendResult<Object> result;
+
+    /**
+     * 写入暂存日志的时间戳（毫秒）
+     */
+    private final long spoolTime;
+
+    public IMOfflineMessage(IMListenerType listenerType, IMSendResult<Object> result, long spoolTime) {
+        this.listenerType = listenerType;
+        this.result = result;
+        this.spoolTime = spoolTime;
+    }
+
+    public IMListenerType getListenerType() {
+        return listenerType;
+    }
+
+    public IMSendResult<Object> getResult() {
+        return result;
+    }
+
+    public long getSpoolTime() {
+        return spoolTime;
+    }
+}
@@ -0,0 +1,44 @@
+package com.lb.im.sdk.domain.model;
+
+/**
+ * 消息载荷
+ * <p>
+ * 同一条消息发往多个服务端、多个终端时，载荷只编码一次，所有信封共享同一份数据。
+ * 超过压缩阈值的载荷以压缩后的字节数组保存，并记录压缩算法，
+ * 接收方根据压缩算法判断是否需要解压。
+ */
+public class IMPayload {
+
+    /**
+     * 载荷数据，未压缩时为原始消息内容，压缩时为压缩后的字节数组
+     */
+    private final Object data;
+
+    /**
+     * 压缩算法，为空表示未压缩
+     */
+    private final String compression;
+
+    public IMPayload(Object data, String compression) {
+        this.data = data;
+        this.compression = compression;
+    }
+
+    /**
+     * 创建未压缩的载荷
+     *
+     * @param data 原始消息内容
+     * @return 未压缩的载荷
+     */
+    public static IMPayload raw(Object data) {
+        return new IMPayload(data, null);
+    }
+
+    public Object getData() {
+        return data;
+    }
+
+    public String getCompression() {
+        return compression;
+    }
+}
@@ -0,0 +1,73 @@
+package com.lb.im.sdk.domain.model;
+
+import com.lb.im.sdk.domain.enums.IMPresenceEventType;
+
+import java.util.List;
+
+/**
+ * 在线状态变化事件
+ * 
+ * 每次只描述一个终端的上线或下线，同时带上变化后用户所有在线终端，
+ * 订阅方无需再查询Redis即可得到完整的在线状态。
+ */
+public class IMPresenceEvent {
+
+    /**
+     * 用户ID
+     */
+    private final Long userId;
+
+    /**
+     * 变化类型
+     */
+    private final IMPresenceEventType type;
+
+    /**
+     * 发生变化的终端类型
+     */
+    private final Integer terminal;
+
+    /**
+     * 发生变化的终端是否在线
+     */
+    private final boolean terminalOnline;
+
+    /**
+     * 变化后的在线终端类型
+     */
+    private final List<Integer> onlineTerminals;
+
+    public IMPresenceEvent(Long userId, IMPresenceEventType type, Integer terminal, boolean terminalOnline, List<Integer> onlineTerminals) {
+        this.userId = userId;
+        this.type = type;
+        this.terminal = terminal;
+        this.terminalOnline = terminalOnline;
+        this.onlineTerminals = onlineTerminals;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public IMPresenceEventType getType() {
+        return type;
+    }
+
+    public Integer getTerminal() {
+        return terminal;
+    }
+
+    public boolean isTerminalOnline() {
+        return terminalOnline;
+    }
+
+    public List<Integer> getOnlineTerminals() {
+        return onlineTerminals;
+    }
+
+    @Override
+    public String toString() {
+        return "IMPresenceEvent{userId=" + userId + ", type=" + type + ", terminal=" + terminal
+                + ", terminalOnline=" + terminalOnline + ", onlineTerminals=" + onlineTerminals + "}";
+    }
+}
@@ -0,0 +1,94 @@
+package com.lb.im.sdk.domain.model;
+
+import com.lb.im.common.domain.model.IMUserInfo;
+
+import java.util.List;
+
+/**
+ * 临时信号
+ * <p>
+ * 正在输入、已读回执、已查看标记等只关心最新状态的信号，不走私聊消息通道：
+ * 1. 不分配消息ID，不跟踪发送结果，接收者不在线时直接丢弃
+ * 2. 同一发送者发给同一接收者的同类信号在一个合并窗口内只发送最后一个
+ * 3. 合并后按目标服务端批量发送，一个服务端一个窗口只发送一个信封
+ *
+ * @param <T> 信号内容的类型参数
+ */
+public class IMSignal<T> {
+
+    /**
+     * 发送者信息
+     */
+    private IMUserInfo sender;
+
+    /**
+     * 接收者ID
+     */
+    private Long receiveId;
+
+    /**
+     * 接收终端类型
+     */
+    private List<Integer> receiveTerminals;
+
+    /**
+     * 信号类型，例如typing、read、seen，同类信号在合并窗口内只保留最新的一个
+     */
+    private String kind;
+
+    /**
+     * 信号内容
+     */
+    private T data;
+
+    public IMSignal() {
+    }
+
+    public IMSignal(IMUserInfo sender, Long receiveId, List<Integer> receiveTerminals, String kind, T data) {
+        this.sender = sender;
+        this.receiveId = receiveId;
+        this.receiveTerminals = receiveTerminals;
+        this.kind = kind;
+        this.data = data;
+    }
+
+    public IMUserInfo getSender() {
+        return sender;
+    }
+
+    public void setSender(IMUserInfo sender) {
+        this.sender = sender;
+    }
+
+    public Long getReceiveId() {
+        return receiveId;
+    }
+
+    public void setReceiveId(Long receiveId) {
+        this.receiveId = receiveId;
+    }
+
+    public List<Integer> getReceiveTerminals() {
+        return receiveTerminals;
+    }
+
+    public void setReceiveTerminals(List<Integer> receiveTerminals) {
+        this.receiveTerminals = receiveTerminals;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public void setKind(String kind) {
+        this.kind = kind;
+    }
+
+    public T getData() {
+        return data;
+    }
+
+    public void setData(T data) {
+        this.data = data;
+    }
+}
@@ -0,0 +1,35 @@
+package com.lb.im.sdk.domain.model;
+
+import com.lb.im.common.mq.event.TopicMessage;
+
+import java.util.List;
+
+/**
+ * 信号信封
+ * <p>
+ * 一个合并窗口内发往同一IM服务端的所有信号合并为一个信封，
+ * 发送到im_message_signal:serverId队列，由服务端逐条投递给本机的接收终端。
+ * 信号不需要发送结果回执，信封不分配消息ID。
+ */
+public class IMSignalBatchInfo extends TopicMessage {
+
+    /**
+     * 信号列表
+     */
+    private List<IMSignalInfo> signals;
+
+    public IMSignalBatchInfo() {
+    }
+
+    public IMSignalBatchInfo(List<IMSignalInfo> signals) {
+        this.signals = signals;
+    }
+
+    public List<IMSignalInfo> getSignals() {
+        return signals;
+    }
+
+    public void setSignals(List<IMSignalInfo> signals) {
+        this.signals = signals;
+    }
+}
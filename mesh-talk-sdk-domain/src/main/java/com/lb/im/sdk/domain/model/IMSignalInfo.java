@@ -0,0 +1,74 @@
+package com.lb.im.sdk.domain.model;
+
+import com.lb.im.common.domain.model.IMUserInfo;
+
+import java.util.List;
+
+/**
+ * 信号信封中的一条信号
+ * 接收者为同一服务端上该接收用户的终端
+ */
+public class IMSignalInfo {
+
+    /**
+     * 发送者信息
+     */
+    private IMUserInfo sender;
+
+    /**
+     * 接收者终端列表
+     */
+    private List<IMUserInfo> receivers;
+
+    /**
+     * 信号类型
+     */
+    private String kind;
+
+    /**
+     * 信号内容
+     */
+    private Object data;
+
+    public IMSignalInfo() {
+    }
+
+    public IMSignalInfo(IMUserInfo sender, List<IMUserInfo> receivers, String kind, Object data) {
+        this.sender = sender;
+        this.receivers = receivers;
+        this.kind = kind;
+        this.data = data;
+    }
+
+    public IMUserInfo getSender() {
+        return sender;
+    }
+
+    public void setSender(IMUserInfo sender) {
+        this.sender = sender;
+    }
+
+    public List<IMUserInfo> getReceivers() {
+        return receivers;
+    }
+
+    public void setReceivers(List<IMUserInfo> receivers) {
+        this.receivers = receivers;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public void setKind(String kind) {
+        this.kind = kind;
+    }
+
+    public Object getData() {
+        return data;
+    }
+
+    public void setData(Object data) {
+        this.data = data;
+    }
+}
@@ -0,0 +1,61 @@
+package com.lb.im.sdk.domain.model;
+
+import com.lb.im.common.domain.model.IMReceiveInfo;
+import com.lb.im.common.domain.model.IMUserInfo;
+
+import java.util.List;
+
+/**
+ * 带消息ID和发送时间戳的接收信息信封
+ * <p>
+ * SDK发出的所有信封都使用该类型，发送前由投递跟踪器分配消息ID并记录发送时间，
+ * 用于把发送结果与发送请求关联起来，统计端到端的投递延迟。
+ * <p>
+ * 载荷被压缩时，data为压缩后的字节数组，compression记录压缩算法，接收方据此解压。
+ */
+public class IMStampedReceiveInfo extends IMReceiveInfo {
+
+    /**
+     * 消息ID，由投递跟踪器分配，同一SDK实例内唯一
+     */
+    private Long messageId;
+
+    /**
+     * 发送时间，单调时钟（System.nanoTime）的纳秒值，仅在发送方进程内有意义
+     */
+    private Long sendTime;
+
+    /**
+     * 载荷压缩算法，为空表示未压缩
+     */
+    private String compression;
+
+    public IMStampedReceiveInfo(Integer cmd, IMUserInfo sender, List<IMUserInfo> receivers, Boolean sendResult, IMPayload payload) {
+        super(cmd, sender, receivers, sendResult, payload.getData());
+        this.compression = payload.getCompression();
+    }
+
+    public Long getMessageId() {
+        return messageId;
+    }
+
+    public void setMessageId(Long messageId) {
+        this.messageId = messageId;
+    }
+
+    public Long getSendTime() {
+        return sendTime;
+    }
+
+    public void setSendTime(Long sendTime) {
+        this.sendTime = sendTime;
+    }
+
+    public String getCompression() {
+        return compression;
+    }
+
+    public void setCompression(String compression) {
+        this.compression = compression;
+    }
+}
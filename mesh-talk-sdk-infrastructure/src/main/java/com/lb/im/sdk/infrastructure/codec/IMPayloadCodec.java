@@ -0,0 +1,28 @@
+package com.lb.im.sdk.infrastructure.codec;
+
+import com.lb.im.sdk.domain.model.IMPayload;
+
+/**
+ * 消息载荷编解码器接口
+ * 
+ * 发送时对超过阈值的载荷进行透明压缩，接收发送结果时按压缩标记解压。
+ */
+public interface IMPayloadCodec {
+
+    /**
+     * 编码消息载荷，超过压缩阈值且压缩有收益时返回压缩后的载荷，否则原样返回
+     *
+     * @param data 原始消息内容
+     * @return 编码后的载荷
+     */
+    IMPayload encode(Object data);
+
+    /**
+     * 解码消息载荷，未压缩时原样返回
+     *
+     * @param data        载荷数据，压缩时为字节数组或其Base64字符串
+     * @param compression 压缩算法，为空表示未压缩
+     * @return 解压后的消息内容，JSON对象或JSON数组
+     */
+    Object decode(Object data, String compression);
+}
@@ -0,0 +1,303 @@
+package com.lb.im.sdk.infrastructure.codec.impl;
+
+import com.alibaba.fastjson.JSON;
+import com.lb.im.sdk.domain.model.IMPayload;
+import com.lb.im.sdk.infrastructure.codec.IMPayloadCodec;
+import com.lb.im.sdk.infrastructure.config.IMSdkProperties;
+import com.lb.im.sdk.infrastructure.metrics.IMMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 消息载荷编解码器的默认实现
+ * <p>
+ * 设计说明：
+ * 1. 使用JDK自带的Deflater（zlib格式，BEST_SPEED级别），不引入额外依赖，接收方可直接用Inflater解压
+ * 2. 字符串、Map、集合、数组和基本类型先估算序列化后的大小上限，明显小于阈值时不序列化；
+ *    其余对象序列化为JSON字节后判断，超过阈值才压缩；压缩后不比原始数据小时放弃压缩
+ * 3. Deflater/Inflater和输出缓冲区按线程复用，避免每次创建本地内存和大数组
+ * <p>
+ * 发布的指标：
+ * 1. im.sdk.payload.compression.ratio - 压缩后大小与原始大小的比值
+ * 2. im.sdk.payload.compression.time - 序列化并压缩的耗时
+ * 3. im.sdk.payload.decompression.time - 解压并解析的耗时
+ * 4. im.sdk.payload.compression.skipped - 小于阈值而未压缩的载荷数，按是否经过序列化区分
+ */
+public class DefaultIMPayloadCodec implements IMPayloadCodec, InitializingBean {
+
+    /**
+     * 压缩算法标记，接收方据此选择解压方式
+     */
+    public static final String DEFLATE = "deflate";
+
+    /**
+     * 线程复用缓冲区的最大大小，超过后临时分配，避免长期占用大数组
+     */
+    private static final int MAX_REUSED_BUFFER = 1 << 20;
+
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+
+    /**
+     * 无法估算大小时的返回值
+     */
+    private static final long UNKNOWN_SIZE = -1L;
+
+    /**
+     * 数字、日期等标量序列化后的大小上限
+     */
+    private static final int SCALAR_SIZE = 32;
+
+    /**
+     * 单个字符序列化为JSON后的最大字节数，控制字符转义为Unicode转义序列后占6字节
+     */
+    private static final long MAX_CHAR_SIZE = 6L;
+
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[8192]);
+
+    // 日志记录器
+    private final Logger logger = LoggerFactory.getLogger(DefaultIMPayloadCodec.class);
+
+    @Autowired
+    private IMSdkProperties imSdkProperties;
+
+    @Autowired
+    private IMMetrics imMetrics;
+
+    /**
+     * 是否启用载荷压缩
+     */
+    private boolean enabled;
+
+    /**
+     * 压缩阈值（字节），序列化后的载荷达到该大小才压缩
+     */
+    private int thresholdBytes;
+
+    private DistributionSummary compressionRatio;
+
+    private Timer compressionTimer;
+
+    private Timer decompressionTimer;
+
+    /**
+     * 估算大小即可判断小于阈值、未序列化的载荷数
+     */
+    private Counter estimatedSkipCounter;
+
+    /**
+     * 序列化后才判断出小于阈值的载荷数
+     */
+    private Counter serializedSkipCounter;
+
+    @Override
+    public void afterPropertiesSet() {
+        enabled = imSdkProperties.getCompression().isEnabled();
+        thresholdBytes = imSdkProperties.getCompression().getThresholdBytes();
+
+        compressionRatio = DistributionSummary.builder(IMMetrics.PREFIX + "payload.compression.ratio")
+                .description("压缩后大小与原始大小的比值")
+                .register(imMetrics.getRegistry());
+        compressionTimer = Timer.builder(IMMetrics.PREFIX + "payload.compression.time")
+                .description("载荷序列化并压缩的耗时")
+                .register(imMetrics.getRegistry());
+        decompressionTimer = Timer.builder(IMMetrics.PREFIX + "payload.decompression.time")
+                .description("载荷解压并解析的耗时")
+                .register(imMetrics.getRegistry());
+        estimatedSkipCounter = Counter.builder(IMMetrics.PREFIX + "payload.compression.skipped")
+                .tag("serialized", "false")
+                .description("小于压缩阈值而未压缩的载荷数")
+                .register(imMetrics.getRegistry());
+        serializedSkipCounter = Counter.builder(IMMetrics.PREFIX + "payload.compression.skipped")
+                .tag("serialized", "true")
+                .description("小于压缩阈值而未压缩的载荷数")
+                .register(imMetrics.getRegistry());
+    }
+
+    @Override
+    public IMPayload encode(Object data) {
+        if (!enabled || data == null) {
+            return IMPayload.raw(data);
+        }
+        // 能估算出大小上限且小于阈值时不必序列化
+        long estimated = estimateSize(data, thresholdBytes);
+        if (estimated != UNKNOWN_SIZE && estimated < thresholdBytes) {
+            estimatedSkipCounter.increment();
+            return IMPayload.raw(data);
+        }
+
+        long start = System.nanoTime();
+        byte[] json = JSON.toJSONBytes(data);
+        if (json.length < thresholdBytes) {
+            serializedSkipCounter.increment();
+            return IMPayload.raw(data);
+        }
+        byte[] compressed = deflate(json);
+        compressionTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (compressed == null) {
+            compressionRatio.record(1.0);
+            return IMPayload.raw(data);
+        }
+        compressionRatio.record((double) compressed.length / json.length);
+        return new IMPayload(compressed, DEFLATE);
+    }
+
+    @Override
+    public Object decode(Object data, String compression) {
+        if (compression == null || data == null) {
+            return data;
+        }
+        if (!DEFLATE.equals(compression)) {
+            logger.warn("DefaultIMPayloadCodec.decode|不支持的压缩算法:{}", compression);
+            return data;
+        }
+
+        long start = System.nanoTime();
+        // 经过JSON传输后字节数组会变成Base64字符串
+        byte[] compressed = data instanceof byte[] ? (byte[]) data : Base64.getDecoder().decode(data.toString());
+        try {
+            Object decoded = JSON.parse(inflate(compressed));
+            decompressionTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return decoded;
+        } catch (DataFormatException e) {
+            logger.error("DefaultIMPayloadCodec.decode|载荷解压失败", e);
+            return data;
+        }
+    }
+
+    /**
+     * 估算载荷序列化为JSON后的大小上限
+     * 字符串按JSON转义后最多6字节一个字符（控制字符转义为Unicode转义序列）计算，保证估算值不小于实际序列化大小；
+     * 累计超过上限后立即返回，不遍历剩余内容
+     *
+     * @param data  载荷
+     * @param limit 估算上限，超过后不再继续累加
+     * @return 大小上限，包含无法估算的对象（例如普通Java对象）时返回{@link #UNKNOWN_SIZE}
+     */
+    static long estimateSize(Object data, long limit) {
+        if (data == null || data instanceof Number || data instanceof Boolean
+                || data instanceof Character || data instanceof Date) {
+            return SCALAR_SIZE;
+        }
+        if (data instanceof CharSequence) {
+            return ((CharSequence) data).length() * MAX_CHAR_SIZE + 2;
+        }
+        if (data instanceof Enum) {
+            return estimateSize(((Enum<?>) data).name(), limit);
+        }
+        if (data instanceof byte[]) {
+            // 字节数组序列化为Base64字符串
+            return ((byte[]) data).length * 4L / 3 + 4;
+        }
+        long size = 2;
+        if (data instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) data).entrySet()) {
+                long keySize = estimateSize(entry.getKey(), limit - size);
+                long valueSize = estimateSize(entry.getValue(), limit - size);
+                if (keySize == UNKNOWN_SIZE || valueSize == UNKNOWN_SIZE) {
+                    return UNKNOWN_SIZE;
+                }
+                size += keySize + valueSize + 2;
+                if (size >= limit) {
+                    return size;
+                }
+            }
+            return size;
+        }
+        if (data instanceof Collection) {
+            for (Object element : (Collection<?>) data) {
+                long elementSize = estimateSize(element, limit - size);
+                if (elementSize == UNKNOWN_SIZE) {
+                    return UNKNOWN_SIZE;
+                }
+                size += elementSize + 1;
+                if (size >= limit) {
+                    return size;
+                }
+            }
+            return size;
+        }
+        if (data instanceof Object[]) {
+            return estimateSize(Arrays.asList((Object[]) data), limit);
+        }
+        return UNKNOWN_SIZE;
+    }
+
+    /**
+     * 压缩JSON字节
+     *
+     * @param json JSON字节
+     * @return 压缩后的字节，压缩后不比原始数据小时返回null
+     */
+    private byte[] deflate(byte[] json) {
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setInput(json);
+        deflater.finish();
+
+        byte[] buffer = buffer(json.length);
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == json.length) {
+                return null;
+            }
+            length += deflater.deflate(buffer, length, json.length - length);
+        }
+        return Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * 解压为UTF-8字符串
+     */
+    private String inflate(byte[] compressed) throws DataFormatException {
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(compressed);
+
+        byte[] buffer = buffer(compressed.length * 4);
+        int length = 0;
+        while (!inflater.finished()) {
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length << 1);
+            }
+            int n = inflater.inflate(buffer, length, buffer.length - length);
+            if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                throw new DataFormatException("压缩数据不完整");
+            }
+            length += n;
+        }
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 获取至少指定大小的缓冲区，不超过复用上限时使用线程复用的缓冲区
+     */
+    private static byte[] buffer(int size) {
+        if (size > MAX_REUSED_BUFFER) {
+            return new byte[size];
+        }
+        byte[] buffer = BUFFER.get();
+        if (buffer.length < size) {
+            buffer = new byte[Math.max(size, buffer.length << 1)];
+            BUFFER.set(buffer);
+        }
+        return buffer;
+    }
+}
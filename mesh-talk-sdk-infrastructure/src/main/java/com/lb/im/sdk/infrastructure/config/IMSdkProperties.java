@@ -0,0 +1,464 @@
+package com.lb.im.sdk.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * SDK配置属性，统一绑定im.sdk前缀下的配置
+ * <p>
+ * 各组件在初始化时从这里读取配置，不再各自使用@Value占位符，
+ * 配置项在IDE中可以自动补全，也便于提前生成绑定元数据。
+ */
+@ConfigurationProperties(prefix = "im.sdk")
+public class IMSdkProperties {
+
+    /**
+     * 载荷压缩配置
+     */
+    private final Compression compression = new Compression();
+
+    /**
+     * 投递跟踪配置
+     */
+    private final Tracking tracking = new Tracking();
+
+    /**
+     * IM服务端存活视图配置
+     */
+    private final Server server = new Server();
+
+    /**
+     * 路由查询配置
+     */
+    private final Route route = new Route();
+
+    /**
+     * 群聊消息配置
+     */
+    private final Group group = new Group();
+
+    /**
+     * 发送结果消费者配置
+     */
+    private final Consumer consumer = new Consumer();
+
+    /**
+     * 在线状态订阅配置
+     */
+    private final Presence presence = new Presence();
+
+    /**
+     * 离线消息暂存配置
+     */
+    private final Spool spool = new Spool();
+
+    /**
+     * 临时信号配置
+     */
+    private final Signal signal = new Signal();
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public Tracking getTracking() {
+        return tracking;
+    }
+
+    public Server getServer() {
+        return server;
+    }
+
+    public Route getRoute() {
+        return route;
+    }
+
+    public Group getGroup() {
+        return group;
+    }
+
+    public Consumer getConsumer() {
+        return consumer;
+    }
+
+    public Presence getPresence() {
+        return presence;
+    }
+
+    public Spool getSpool() {
+        return spool;
+    }
+
+    public Signal getSignal() {
+        return signal;
+    }
+
+    /**
+     * 载荷压缩配置
+     */
+    public static class Compression {
+
+        /**
+         * 是否启用载荷压缩
+         */
+        private boolean enabled = false;
+
+        /**
+         * 压缩阈值（字节），序列化后的载荷达到该大小才压缩
+         */
+        private int thresholdBytes = 4096;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getThresholdBytes() {
+            return thresholdBytes;
+        }
+
+        public void setThresholdBytes(int thresholdBytes) {
+            this.thresholdBytes = thresholdBytes;
+        }
+    }
+
+    /**
+     * 投递跟踪配置
+     */
+    public static class Tracking {
+
+        /**
+         * 是否启用投递跟踪，关闭后只分配消息ID和发送时间
+         */
+        private boolean enabled = true;
+
+        /**
+         * 等待发送结果的时间（毫秒），过期仍未在本实例收到结果的记录计入delivery.unmatched
+         */
+        private long timeoutMillis = 30000;
+
+        /**
+         * 待确认表最多保存的记录数，每个接收终端占用一条记录和一条别名记录
+         */
+        private int maxPending = 1048576;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getTimeoutMillis() {
+            return timeoutMillis;
+        }
+
+        public void setTimeoutMillis(long timeoutMillis) {
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        public int getMaxPending() {
+            return maxPending;
+        }
+
+        public void setMaxPending(int maxPending) {
+            this.maxPending = maxPending;
+        }
+    }
+
+    /**
+     * IM服务端存活视图配置
+     */
+    public static class Server {
+
+        /**
+         * 心跳超时时间（毫秒），超过该时间没有心跳的服务端视为下线
+         */
+        private long heartbeatTimeoutMillis = 15000;
+
+        /**
+         * 存活视图的刷新间隔（毫秒）
+         */
+        private long refreshIntervalMillis = 2000;
+
+        public long getHeartbeatTimeoutMillis() {
+            return heartbeatTimeoutMillis;
+        }
+
+        public void setHeartbeatTimeoutMillis(long heartbeatTimeoutMillis) {
+            this.heartbeatTimeoutMillis = heartbeatTimeoutMillis;
+        }
+
+        public long getRefreshIntervalMillis() {
+            return refreshIntervalMillis;
+        }
+
+        public void setRefreshIntervalMillis(long refreshIntervalMillis) {
+            this.refreshIntervalMillis = refreshIntervalMillis;
+        }
+    }
+
+    /**
+     * 路由查询配置
+     */
+    public static class Route {
+
+        /**
+         * Redis集群模式下批量查询路由的并行线程数，各主节点的查询并行执行
+         */
+        private int clusterParallelism = 8;
+
+        public int getClusterParallelism() {
+            return clusterParallelism;
+        }
+
+        public void setClusterParallelism(int clusterParallelism) {
+            this.clusterParallelism = clusterParallelism;
+        }
+    }
+
+    /**
+     * 群聊消息配置
+     */
+    public static class Group {
+
+        /**
+         * 按群组ID发送时，成员数量达到该值（或未传入成员列表）的群改为向每个存活的服务端发送一份，
+         * 由服务端投递给本机的群成员，小于等于0表示不启用，始终按成员发送
+         * <p>
+         * 注意：改为按服务端发送后不产生逐个成员的发送结果，消息上的sendResult=true不再生效
+         */
+        private int fanOutOnReadThreshold = 10000;
+
+        public int getFanOutOnReadThreshold() {
+            return fanOutOnReadThreshold;
+        }
+
+        public void setFanOutOnReadThreshold(int fanOutOnReadThreshold) {
+            this.fanOutOnReadThreshold = fanOutOnReadThreshold;
+        }
+    }
+
+    /**
+     * 发送结果消费者配置
+     * 只发送消息、不关心发送结果的服务可以关闭，启动时不再创建RocketMQ消费者
+     */
+    public static class Consumer {
+
+        /**
+         * 是否启用发送结果消费者
+         */
+        private boolean enabled = true;
+
+        /**
+         * 是否启用高优先级和批量通道的发送结果消费者，只使用普通优先级的服务可以关闭
+         */
+        private boolean priorityLanesEnabled = true;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public boolean isPriorityLanesEnabled() {
+            return priorityLanesEnabled;
+        }
+
+        public void setPriorityLanesEnabled(boolean priorityLanesEnabled) {
+            this.priorityLanesEnabled = priorityLanesEnabled;
+        }
+    }
+
+    /**
+     * 在线状态订阅配置
+     */
+    public static class Presence {
+
+        /**
+         * 路由键所在的Redis库，用于拼接键空间通知频道
+         */
+        private int database = 0;
+
+        /**
+         * 全量校对间隔（毫秒），弥补断线期间丢失的通知，0表示不校对
+         */
+        private long resyncIntervalMillis = 60000;
+
+        public int getDatabase() {
+            return database;
+        }
+
+        public void setDatabase(int database) {
+            this.database = database;
+        }
+
+        public long getResyncIntervalMillis() {
+            return resyncIntervalMillis;
+        }
+
+        public void setResyncIntervalMillis(long resyncIntervalMillis) {
+            this.resyncIntervalMillis = resyncIntervalMillis;
+        }
+    }
+
+    /**
+     * 离线消息暂存配置
+     */
+    public static class Spool {
+
+        /**
+         * 是否启用离线暂存，启用后不在线的发送结果先写入本地日志，由后台线程批量交给离线消息存储
+         */
+        private boolean enabled = false;
+
+        /**
+         * 暂存日志目录
+         */
+        private String directory = System.getProperty("java.io.tmpdir") + "/im-sdk-spool";
+
+        /**
+         * 单个日志段文件的大小（字节）
+         */
+        private int segmentBytes = 64 * 1024 * 1024;
+
+        /**
+         * 最多保留的日志段数量，写满后不再暂存，退回到直接通知监听器
+         */
+        private int maxSegments = 64;
+
+        /**
+         * 刷盘间隔（毫秒），这段时间内的写入合并为一次刷盘
+         */
+        private long flushIntervalMillis = 10;
+
+        /**
+         * 每批交给离线消息存储的最大条数
+         */
+        private int batchSize = 1000;
+
+        /**
+         * 没有待回放的记录时，后台线程的检查间隔（毫秒）
+         */
+        private long drainIntervalMillis = 50;
+
+        /**
+         * 离线消息存储失败后的重试间隔（毫秒）
+         */
+        private long retryBackoffMillis = 1000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public int getSegmentBytes() {
+            return segmentBytes;
+        }
+
+        public void setSegmentBytes(int segmentBytes) {
+            this.segmentBytes = segmentBytes;
+        }
+
+        public int getMaxSegments() {
+            return maxSegments;
+        }
+
+        public void setMaxSegments(int maxSegments) {
+            this.maxSegments = maxSegments;
+        }
+
+        public long getFlushIntervalMillis() {
+            return flushIntervalMillis;
+        }
+
+        public void setFlushIntervalMillis(long flushIntervalMillis) {
+            this.flushIntervalMillis = flushIntervalMillis;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public long getDrainIntervalMillis() {
+            return drainIntervalMillis;
+        }
+
+        public void setDrainIntervalMillis(long drainIntervalMillis) {
+            this.drainIntervalMillis = drainIntervalMillis;
+        }
+
+        public long getRetryBackoffMillis() {
+            return retryBackoffMillis;
+        }
+
+        public void setRetryBackoffMillis(long retryBackoffMillis) {
+            this.retryBackoffMillis = retryBackoffMillis;
+        }
+    }
+
+    /**
+     * 临时信号配置
+     */
+    public static class Signal {
+
+        /**
+         * 合并窗口（毫秒），窗口内同一发送者发给同一接收者的同类信号只发送最后一个
+         */
+        private long windowMillis = 100;
+
+        /**
+         * 最多等待发送的信号数量，超过后丢弃新的信号
+         */
+        private int maxPending = 100000;
+
+        /**
+         * 单个信封最多携带的信号数量
+         */
+        private int maxBatchSize = 500;
+
+        public long getWindowMillis() {
+            return windowMillis;
+        }
+
+        public void setWindowMillis(long windowMillis) {
+            this.windowMillis = windowMillis;
+        }
+
+        public int getMaxPending() {
+            return maxPending;
+        }
+
+        public void setMaxPending(int maxPending) {
+            this.maxPending = maxPending;
+        }
+
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        public void setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+    }
+}
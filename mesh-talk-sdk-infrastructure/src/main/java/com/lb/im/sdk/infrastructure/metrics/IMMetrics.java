@@ -0,0 +1,35 @@
+package com.lb.im.sdk.infrastructure.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * SDK指标注册入口
+ * 
+ * 宿主应用配置了MeterRegistry（例如引入了actuator）时，SDK指标注册到该实例上；
+ * 否则注册到Micrometer的全局注册表，宿主应用可自行添加导出实现。
+ */
+public class IMMetrics {
+
+    /**
+     * 指标名称前缀
+     */
+    public static final String PREFIX = "im.sdk.";
+
+    /**
+     * 宿主应用的指标注册表
+     * required=false表示宿主应用没有配置时也不会报错
+     */
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 获取SDK使用的指标注册表
+     *
+     * @return 宿主应用的指标注册表，没有配置时返回全局注册表
+     */
+    public MeterRegistry getRegistry() {
+        return meterRegistry != null ? meterRegistry : Metrics.globalRegistry;
+    }
+}
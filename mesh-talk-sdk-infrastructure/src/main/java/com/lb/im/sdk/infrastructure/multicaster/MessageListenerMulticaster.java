@@ -23,4 +23,16 @@ public interface MessageListenerMulticaster {
      */
     <T> void multicast(IMListenerType listenerType, IMSendResult result);
 
+    /**
+     * 判断是否有监听器需要该结果
+     * 结果消费者在解压和转换载荷之前调用，没有监听器需要时直接跳过
+     *
+     * @param listenerType 监听器类型
+     * @param result       消息发送结果对象，只使用状态码、发送者和接收者
+     * @return 至少有一个监听器的类型和过滤条件匹配时返回true
+     */
+    default boolean hasListeners(IMListenerType listenerType, IMSendResult result) {
+        return true;
+    }
+
 }
@@ -1,29 +1,49 @@
 package com.lb.im.sdk.infrastructure.multicaster.impl;
 
 import cn.hutool.core.collection.CollectionUtil;
+import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.parser.ParserConfig;
+import com.alibaba.fastjson.util.TypeUtils;
 import com.lb.im.common.domain.enums.IMListenerType;
 import com.lb.im.common.domain.model.IMSendResult;
+import com.lb.im.common.domain.model.IMUserInfo;
 import com.lb.im.sdk.domain.annotation.IMListener;
 import com.lb.im.sdk.domain.listener.MessageListener;
 import com.lb.im.sdk.infrastructure.multicaster.MessageListenerMulticaster;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Component;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.util.ClassUtils;
 
-import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * 消息监听器多播器的默认实现
- * 
+ *
  * 负责将消息发送结果广播给所有注册的监听器。
  * 使用Spring的依赖注入自动收集所有实现了MessageListener接口的Bean，
  * 并根据它们的IMListener注解类型进行过滤，将消息分发给匹配的监听器。
+ * <p>
+ * 设计说明：
+ * 1. 启动时为每种监听器类型预先计算分发路由：匹配的监听器、它们的泛型类型以及去重后的目标类型
+ * 2. 每条结果的原始数据对每种目标类型最多转换一次，同类型的监听器共享转换结果，
+ *    新增同类型的监听器不再增加转换开销
+ * 3. 不修改传入的结果对象，每种目标类型得到一个只读的结果视图
+ * 4. 每种目标类型的转换函数缓存复用
+ * 5. 监听器注解上的过滤条件（状态码、发送者终端、接收者终端）在启动时编译，
+ *    按(状态码, 发送者终端, 接收者终端)缓存筛选后的分发路由，不需要的结果不会转换，也不会交给监听器
  */
-@Component
-public class DefaultMessageListenerMulticaster implements MessageListenerMulticaster {
+public class DefaultMessageListenerMulticaster implements MessageListenerMulticaster, InitializingBean {
 
     /**
      * 所有注册的消息监听器列表
@@ -33,6 +53,23 @@ public class DefaultMessageListenerMulticaster implements MessageListenerMultica
     @Autowired(required = false)
     private List<MessageListener> messageListenerList = Collections.emptyList();
 
+    /**
+     * 每种监听器类型的分发路由表
+     */
+    private final Map<IMListenerType, RouteTable> routes = new EnumMap<>(IMListenerType.class);
+
+    /**
+     * 每种目标类型的转换函数
+     */
+    private final Map<Type, Function<Object, Object>> converters = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterPropertiesSet() {
+        for (IMListenerType listenerType : IMListenerType.values()) {
+            routes.put(listenerType, this.buildRouteTable(listenerType));
+        }
+    }
+
     /**
      * 将消息结果广播给所有匹配的监听器
      *
@@ -40,34 +77,322 @@ public class DefaultMessageListenerMulticaster implements MessageListenerMultica
      * @param result       消息发送结果对象，包含需要处理的数据
      */
     @Override
+    @SuppressWarnings("unchecked")
     public <T> void multicast(IMListenerType listenerType, IMSendResult result) {
-        // 如果没有注册的监听器，直接返回
-        if (CollectionUtil.isEmpty(messageListenerList)) {
+        RouteTable table = routes.get(listenerType);
+        // 如果没有匹配的监听器，直接返回
+        if (table == null) {
+            return;
+        }
+        ListenerRoute route = table.route(result);
+        if (route.listeners.length == 0) {
             return;
         }
 
-        // 遍历所有监听器，筛选符合条件的监听器进行处理
-        messageListenerList.forEach(messageListener -> {
-            // 获取监听器上的IMListener注解
-            IMListener imListener = messageListener.getClass().getAnnotation(IMListener.class);
+        Object data = result.getData();
+        // 只有JSON数据才需要按监听器的泛型类型转换，其他数据所有监听器共享同一个只读视图
+        if (!(data instanceof JSON)) {
+            IMSendResult view = new ReadOnlyIMSendResult<>(result.getSender(), result.getReceiver(), result.getCode(), data);
+            for (MessageListener listener : route.listeners) {
+                listener.doProcess(view);
+            }
+            return;
+        }
 
-            // 检查监听器是否应该接收此类型的消息
-            // 如果监听器类型是ALL或者与指定的类型匹配，则处理消息
-            if (imListener != null && (IMListenerType.ALL.equals(imListener.listenerType()) || imListener.listenerType().equals(listenerType))) {
-                // 处理JSON数据类型转换
-                if (result.getData() instanceof JSONObject) {
-                    // 使用反射获取监听器接口的泛型类型
-                    Type superInterface = messageListener.getClass().getGenericInterfaces()[0];
-                    Type type = ((ParameterizedType) superInterface).getActualTypeArguments()[0];
+        // 每种目标类型最多转换一次
+        IMSendResult[] views = new IMSendResult[route.types.length];
+        for (int i = 0; i < route.listeners.length; i++) {
+            int typeIndex = route.typeIndexes[i];
+            IMSendResult view = views[typeIndex];
+            if (view == null) {
+                Object converted = this.converter(route.types[typeIndex]).apply(data);
+                view = new ReadOnlyIMSendResult<>(result.getSender(), result.getReceiver(), result.getCode(), converted);
+                views[typeIndex] = view;
+            }
+            route.listeners[i].doProcess(view);
+        }
+    }
 
-                    // 将JSON数据转换为目标监听器接口的泛型类型
-                    JSONObject data = (JSONObject) result.getData();
-                    result.setData(data.toJavaObject(type));
+    @Override
+    public boolean hasListeners(IMListenerType listenerType, IMSendResult result) {
+        RouteTable table = routes.get(listenerType);
+        return table != null && table.route(result).listeners.length > 0;
+    }
+
+    /**
+     * 构建指定监听器类型的分发路由表
+     * 如果监听器类型是ALL或者与指定的类型匹配，则该监听器接收此类型的消息
+     */
+    private RouteTable buildRouteTable(IMListenerType listenerType) {
+        List<ListenerCandidate> candidates = new ArrayList<>();
+        if (CollectionUtil.isNotEmpty(messageListenerList)) {
+            for (MessageListener messageListener : messageListenerList) {
+                // 获取监听器上的IMListener注解，兼容代理类
+                Class<?> listenerClass = ClassUtils.getUserClass(messageListener);
+                IMListener imListener = AnnotationUtils.findAnnotation(listenerClass, IMListener.class);
+                if (imListener == null
+                        || !(IMListenerType.ALL.equals(imListener.listenerType()) || imListener.listenerType().equals(listenerType))) {
+                    continue;
                 }
+                candidates.add(new ListenerCandidate(messageListener, resolveDataType(listenerClass), ListenerFilter.of(imListener)));
+            }
+        }
+        return new RouteTable(candidates);
+    }
+
+    /**
+     * 解析监听器实现的MessageListener接口的泛型类型，无法解析时按Object处理
+     */
+    private static Type resolveDataType(Class<?> listenerClass) {
+        ResolvableType generic = ResolvableType.forClass(listenerClass).as(MessageListener.class).getGeneric(0);
+        return generic.resolve() == null ? Object.class : generic.getType();
+    }
 
-                // 调用监听器的处理方法
-                messageListener.doProcess(result);
+    /**
+     * 获取目标类型的转换函数
+     * 目标类型本身就能接收JSON数据时不做转换，其余类型使用fastjson按类型转换
+     */
+    private Function<Object, Object> converter(Type type) {
+        return converters.computeIfAbsent(type, t -> {
+            if (t == Object.class || t == JSON.class || t == JSONObject.class || t == Map.class) {
+                return Function.identity();
             }
+            ParserConfig parserConfig = ParserConfig.getGlobalInstance();
+            return data -> TypeUtils.cast(data, t, parserConfig);
         });
     }
+
+    /**
+     * 监听器类型的分发路由表
+     * 没有监听器声明过滤条件时所有结果共用一条路由；
+     * 否则按(状态码, 发送者终端, 接收者终端)筛选监听器，筛选结果缓存复用
+     */
+    private static final class RouteTable {
+
+        /**
+         * 最多缓存的筛选路由数量，超过后不再缓存，每次重新筛选
+         */
+        private static final int MAX_CACHED_ROUTES = 4096;
+
+        /**
+         * 键中每个字段占用的位数
+         */
+        private static final int KEY_BITS = 20;
+
+        private final List<ListenerCandidate> candidates;
+
+        /**
+         * 不需要筛选时使用的路由，包含所有监听器
+         */
+        private final ListenerRoute unfiltered;
+
+        private final Map<Long, ListenerRoute> filteredRoutes = new ConcurrentHashMap<>();
+
+        private RouteTable(List<ListenerCandidate> candidates) {
+            this.candidates = candidates;
+            boolean filtered = false;
+            for (ListenerCandidate candidate : candidates) {
+                filtered |= candidate.filter != null;
+            }
+            this.unfiltered = filtered ? null : ListenerRoute.of(candidates);
+        }
+
+        private ListenerRoute route(IMSendResult<?> result) {
+            if (unfiltered != null) {
+                return unfiltered;
+            }
+            Integer code = result.getCode();
+            Integer senderTerminal = result.getSender() == null ? null : result.getSender().getTerminal();
+            Integer receiverTerminal = result.getReceiver() == null ? null : result.getReceiver().getTerminal();
+            long key = routeKey(code, senderTerminal, receiverTerminal);
+            if (key < 0) {
+                return this.select(code, senderTerminal, receiverTerminal);
+            }
+            ListenerRoute route = filteredRoutes.get(key);
+            if (route == null) {
+                route = this.select(code, senderTerminal, receiverTerminal);
+                if (filteredRoutes.size() < MAX_CACHED_ROUTES) {
+                    filteredRoutes.put(key, route);
+                }
+            }
+            return route;
+        }
+
+        private ListenerRoute select(Integer code, Integer senderTerminal, Integer receiverTerminal) {
+            List<ListenerCandidate> matched = new ArrayList<>(candidates.size());
+            for (ListenerCandidate candidate : candidates) {
+                if (candidate.filter == null || candidate.filter.matches(code, senderTerminal, receiverTerminal)) {
+                    matched.add(candidate);
+                }
+            }
+            return ListenerRoute.of(matched);
+        }
+
+        /**
+         * 把三个字段编码为一个long，空值编码为0，任一字段超出范围时返回-1，不缓存
+         */
+        private static long routeKey(Integer code, Integer senderTerminal, Integer receiverTerminal) {
+            long c = keyPart(code);
+            long s = keyPart(senderTerminal);
+            long r = keyPart(receiverTerminal);
+            if (c < 0 || s < 0 || r < 0) {
+                return -1;
+            }
+            return (c << (KEY_BITS * 2)) | (s << KEY_BITS) | r;
+        }
+
+        private static long keyPart(Integer value) {
+            if (value == null) {
+                return 0;
+            }
+            return value >= 0 && value < (1 << KEY_BITS) - 1 ? value + 1 : -1;
+        }
+    }
+
+    /**
+     * 匹配某种监听器类型的监听器及其目标类型和过滤条件
+     */
+    private static final class ListenerCandidate {
+
+        private final MessageListener listener;
+
+        private final Type type;
+
+        /**
+         * 过滤条件，为空表示接收所有结果
+         */
+        private final ListenerFilter filter;
+
+        private ListenerCandidate(MessageListener listener, Type type, ListenerFilter filter) {
+            this.listener = listener;
+            this.type = type;
+            this.filter = filter;
+        }
+    }
+
+    /**
+     * 从IMListener注解编译出的过滤条件，各条件为空表示不限制
+     */
+    private static final class ListenerFilter {
+
+        private final int[] codes;
+
+        private final int[] senderTerminals;
+
+        private final int[] receiverTerminals;
+
+        private ListenerFilter(int[] codes, int[] senderTerminals, int[] receiverTerminals) {
+            this.codes = codes;
+            this.senderTerminals = senderTerminals;
+            this.receiverTerminals = receiverTerminals;
+        }
+
+        /**
+         * 编译注解上的过滤条件，没有声明任何条件时返回空
+         */
+        private static ListenerFilter of(IMListener imListener) {
+            int[] codes = sorted(imListener.codes());
+            int[] senderTerminals = sorted(imListener.senderTerminals());
+            int[] receiverTerminals = sorted(imListener.receiverTerminals());
+            if (codes == null && senderTerminals == null && receiverTerminals == null) {
+                return null;
+            }
+            return new ListenerFilter(codes, senderTerminals, receiverTerminals);
+        }
+
+        private boolean matches(Integer code, Integer senderTerminal, Integer receiverTerminal) {
+            return matches(codes, code) && matches(senderTerminals, senderTerminal) && matches(receiverTerminals, receiverTerminal);
+        }
+
+        private static boolean matches(int[] values, Integer value) {
+            return values == null || (value != null && Arrays.binarySearch(values, value) >= 0);
+        }
+
+        private static int[] sorted(int[] values) {
+            if (values.length == 0) {
+                return null;
+            }
+            int[] copy = values.clone();
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    /**
+     * 筛选后的分发路由
+     */
+    private static final class ListenerRoute {
+
+        /**
+         * 匹配的监听器
+         */
+        private final MessageListener[] listeners;
+
+        /**
+         * 去重后的目标类型
+         */
+        private final Type[] types;
+
+        /**
+         * 每个监听器对应的目标类型下标
+         */
+        private final int[] typeIndexes;
+
+        private ListenerRoute(MessageListener[] listeners, Type[] types, int[] typeIndexes) {
+            this.listeners = listeners;
+            this.types = types;
+            this.typeIndexes = typeIndexes;
+        }
+
+        /**
+         * 按监听器顺序构建路由，只收集这些监听器用到的目标类型
+         */
+        private static ListenerRoute of(List<ListenerCandidate> candidates) {
+            MessageListener[] listeners = new MessageListener[candidates.size()];
+            List<Type> types = new ArrayList<>();
+            int[] typeIndexes = new int[candidates.size()];
+            for (int i = 0; i < listeners.length; i++) {
+                ListenerCandidate candidate = candidates.get(i);
+                int typeIndex = types.indexOf(candidate.type);
+                if (typeIndex < 0) {
+                    typeIndex = types.size();
+                    types.add(candidate.type);
+                }
+                listeners[i] = candidate.listener;
+                typeIndexes[i] = typeIndex;
+            }
+            return new ListenerRoute(listeners, types.toArray(new Type[0]), typeIndexes);
+        }
+    }
+
+    /**
+     * 只读的发送结果视图
+     * 同一目标类型的监听器共享同一个视图，禁止修改，避免监听器之间相互影响
+     */
+    private static final class ReadOnlyIMSendResult<T> extends IMSendResult<T> {
+
+        private ReadOnlyIMSendResult(IMUserInfo sender, IMUserInfo receiver, Integer code, T data) {
+            super(sender, receiver, code, data);
+        }
+
+        @Override
+        public void setSender(IMUserInfo sender) {
+            throw new UnsupportedOperationException("发送结果视图不允许修改");
+        }
+
+        @Override
+        public void setReceiver(IMUserInfo receiver) {
+            throw new UnsupportedOperationException("发送结果视图不允许修改");
+        }
+
+        @Override
+        public void setCode(Integer code) {
+            throw new UnsupportedOperationException("发送结果视图不允许修改");
+        }
+
+        @Override
+        public void setData(T data) {
+            throw new UnsupportedOperationException("发送结果视图不允许修改");
+        }
+    }
 }
@@ -0,0 +1,24 @@
+package com.lb.im.sdk.infrastructure.presence;
+
+import com.lb.im.sdk.domain.listener.IMPresenceListener;
+
+import java.util.Collection;
+
+/**
+ * 在线状态订阅服务接口
+ * 
+ * 订阅一批用户后，这些用户上线、下线或在线终端变化时主动推送事件，
+ * 取代定时轮询getOnlineTerminal等查询接口。
+ * 同一用户被多个订阅关注时，本地只维护一份在线状态，Redis上也只订阅一次。
+ */
+public interface IMPresenceService {
+
+    /**
+     * 订阅用户的在线状态变化
+     *
+     * @param userIds  需要订阅的用户ID
+     * @param listener 状态变化监听器
+     * @return 订阅句柄，用于增减订阅的用户和取消订阅
+     */
+    IMPresenceSubscription subscribe(Collection<Long> userIds, IMPresenceListener listener);
+}
@@ -0,0 +1,40 @@
+package com.lb.im.sdk.infrastructure.presence;
+
+import com.lb.im.common.domain.enums.IMTerminalType;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 在线状态订阅句柄
+ */
+public interface IMPresenceSubscription {
+
+    /**
+     * 增加订阅的用户，例如新增好友
+     *
+     * @param userIds 用户ID
+     */
+    void addUsers(Collection<Long> userIds);
+
+    /**
+     * 减少订阅的用户，例如删除好友
+     *
+     * @param userIds 用户ID
+     */
+    void removeUsers(Collection<Long> userIds);
+
+    /**
+     * 获取订阅用户当前的在线终端
+     * 直接读取本地维护的在线状态，不访问Redis
+     *
+     * @return 用户ID到在线终端类型列表的映射，只包含在线的用户
+     */
+    Map<Long, List<IMTerminalType>> getOnlineTerminals();
+
+    /**
+     * 取消订阅，之后不再收到事件
+     */
+    void cancel();
+}
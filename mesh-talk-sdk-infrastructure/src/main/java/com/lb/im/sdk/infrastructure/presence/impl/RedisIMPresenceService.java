@@ -0,0 +1,586 @@
+package com.lb.im.sdk.infrastructure.presence.impl;
+
+import com.lb.im.common.domain.constans.IMConstants;
+import com.lb.im.common.domain.enums.IMTerminalType;
+import com.lb.im.sdk.domain.constants.IMSdkConstants;
+import com.lb.im.sdk.domain.enums.IMPresenceEventType;
+import com.lb.im.sdk.domain.listener.IMPresenceListener;
+import com.lb.im.sdk.domain.model.IMPresenceEvent;
+import com.lb.im.sdk.infrastructure.config.IMSdkProperties;
+import com.lb.im.sdk.infrastructure.metrics.IMMetrics;
+import com.lb.im.sdk.infrastructure.presence.IMPresenceService;
+import com.lb.im.sdk.infrastructure.presence.IMPresenceSubscription;
+import com.lb.im.sdk.infrastructure.route.IMRouteRepository;
+import com.lb.im.sdk.infrastructure.server.IMServerRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.SubscriptionListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于Redis键空间通知的在线状态订阅服务
+ * <p>
+ * 设计说明：
+ * 1. IM服务端在用户终端上线时写入路由键（im:user:server_id:userId:terminal），下线时删除或任其过期，
+ *    订阅这些键的键空间通知频道即可感知上下线，不需要IM服务端额外发布消息
+ * 2. 所有订阅共享一份本地索引：用户ID到在线终端位图和订阅列表，
+ *    同一用户被多个订阅关注时只订阅一次Redis频道，最后一个订阅取消时才退订
+ * 3. 路由键续期时也会收到set通知，只有在线终端位图变化时才推送事件
+ * 4. 订阅容器使用独立的线程池（阻塞式订阅会一直占用一个线程），收到的通知再转交单个线程顺序处理，
+ *    保证同一终端的上下线事件不会乱序；定时用MGET全量校对一次，弥补断线重连期间丢失的通知
+ * 5. 订阅是异步生效的：新用户的所有频道都收到订阅确认后，才在同一个线程上用MGET加载初始状态，
+ *    加载之前收到的通知直接忽略（加载读到的状态不早于这些通知），加载和通知按顺序生效，旧的查询结果不会覆盖新的通知；
+ *    超过等待时间仍未确认的用户也会加载，避免一直没有状态
+ * 6. 第一次订阅时才建立Redis订阅连接，不使用该功能的服务没有额外开销
+ * <p>
+ * 依赖Redis开启键空间通知：notify-keyspace-events 至少包含 K、g、$、x（例如 "Kg$x"）。
+ * <p>
+ * 只适用于单机（或主从）Redis：集群模式下键空间通知只在键所在的节点发布，不会在集群内广播，
+ * 订阅连接只能收到其所连节点上的变化。检测到集群连接时会打印告警，此时在线状态主要依赖定时校对，
+ * 延迟最长为一个校对周期。
+ */
+public class RedisIMPresenceService implements IMPresenceService, InitializingBean, DisposableBean {
+
+    // 日志记录器
+    private final Logger logger = LoggerFactory.getLogger(RedisIMPresenceService.class);
+
+    /**
+     * 全量校对时每次MGET的用户数
+     */
+    private static final int RESYNC_BATCH_USERS = 1000;
+
+    /**
+     * 等待订阅确认的最长时间（毫秒），与订阅容器默认的订阅等待时间一致
+     */
+    private static final long SUBSCRIBE_CONFIRM_TIMEOUT_MILLIS = 2000;
+
+    @Autowired
+    private RedisConnectionFactory redisConnectionFactory;
+
+    @Autowired
+    private IMRouteRepository imRouteRepository;
+
+    @Autowired
+    private IMServerRegistry imServerRegistry;
+
+    @Autowired
+    private IMSdkProperties imSdkProperties;
+
+    @Autowired
+    private IMMetrics imMetrics;
+
+    /**
+     * 本地订阅索引，键为用户ID
+     */
+    private final Map<Long, UserPresence> index = new ConcurrentHashMap<>();
+
+    /**
+     * 是否为Redis集群连接
+     */
+    private boolean isCluster() {
+        RedisConnection connection = redisConnectionFactory.getConnection();
+        try {
+            return connection instanceof RedisClusterConnection;
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * 处理键空间通知和订阅确认的监听器，所有频道共用，转交单线程执行器顺序处理
+     */
+    private final KeyspaceListener keyspaceListener = new KeyspaceListener();
+
+    /**
+     * 所有频道都已确认、等待加载初始状态的用户，只在执行器线程上访问
+     */
+    private final List<Long> confirmedUsers = new ArrayList<>();
+
+    private Counter eventCounter;
+
+    /**
+     * 通知处理、初始加载和定时校对共用的单线程执行器，第一次订阅时创建
+     */
+    private volatile ScheduledExecutorService executor;
+
+    /**
+     * 订阅容器专用的线程池，订阅连接的阻塞读取和通知分发都在这里执行，第一次订阅时创建
+     */
+    private ExecutorService containerExecutor;
+
+    /**
+     * Redis订阅容器，第一次订阅时创建
+     */
+    private RedisMessageListenerContainer container;
+
+    @Override
+    public void afterPropertiesSet() {
+        Gauge.builder(IMMetrics.PREFIX + "presence.subscribed.users", index, Map::size)
+                .description("订阅在线状态的用户数")
+                .register(imMetrics.getRegistry());
+        eventCounter = Counter.builder(IMMetrics.PREFIX + "presence.events")
+                .description("推送的在线状态变化事件数")
+                .register(imMetrics.getRegistry());
+    }
+
+    @Override
+    public synchronized void destroy() throws Exception {
+        if (container != null) {
+            container.destroy();
+        }
+        if (containerExecutor != null) {
+            containerExecutor.shutdownNow();
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public IMPresenceSubscription subscribe(Collection<Long> userIds, IMPresenceListener listener) {
+        Subscription subscription = new Subscription(listener);
+        subscription.addUsers(userIds);
+        return subscription;
+    }
+
+    /**
+     * 为订阅增加用户，本地索引中新出现的用户订阅Redis频道，收到订阅确认后加载当前在线状态
+     */
+    private void addUsers(Subscription subscription, Collection<Long> userIds) {
+        List<Long> newUsers = new ArrayList<>();
+        synchronized (this) {
+            this.ensureStarted();
+            for (Long userId : new LinkedHashSet<>(userIds)) {
+                if (userId == null || !subscription.userIds.add(userId)) {
+                    continue;
+                }
+                UserPresence presence = index.get(userId);
+                if (presence == null) {
+                    presence = new UserPresence(userId);
+                    index.put(userId, presence);
+                    newUsers.add(userId);
+                }
+                presence.subscriptions.add(subscription);
+            }
+            if (!newUsers.isEmpty()) {
+                container.addMessageListener(keyspaceListener, this.topics(newUsers));
+                executor.schedule(() -> this.loadUnconfirmed(newUsers), SUBSCRIBE_CONFIRM_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * 为订阅减少用户，本地索引中不再被关注的用户退订Redis频道
+     */
+    private void removeUsers(Subscription subscription, Collection<Long> userIds) {
+        List<Long> removedUsers = new ArrayList<>();
+        synchronized (this) {
+            for (Long userId : userIds) {
+                if (userId == null || !subscription.userIds.remove(userId)) {
+                    continue;
+                }
+                UserPresence presence = index.get(userId);
+                if (presence != null && presence.subscriptions.remove(subscription) && presence.subscriptions.isEmpty()) {
+                    index.remove(userId);
+                    removedUsers.add(userId);
+                }
+            }
+            if (!removedUsers.isEmpty() && container != null) {
+                container.removeMessageListener(keyspaceListener, this.topics(removedUsers));
+            }
+        }
+    }
+
+    /**
+     * 第一次订阅时创建执行器和Redis订阅容器
+     */
+    private void ensureStarted() {
+        if (container != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "im-presence");
+            thread.setDaemon(true);
+            return thread;
+        });
+        containerExecutor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "im-presence-subscriber");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (this.isCluster()) {
+            logger.warn("RedisIMPresenceService.ensureStarted|Redis为集群模式，键空间通知只在键所在节点发布，"
+                    + "只能收到部分上下线通知，在线状态主要依赖定时校对");
+        }
+        container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.setTaskExecutor(containerExecutor);
+        container.setSubscriptionExecutor(containerExecutor);
+        container.afterPropertiesSet();
+        container.start();
+
+        long resyncMillis = imSdkProperties.getPresence().getResyncIntervalMillis();
+        if (resyncMillis > 0) {
+            executor.scheduleWithFixedDelay(this::resync, resyncMillis, resyncMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 处理订阅确认，用户的所有频道都确认后加入待加载列表
+     * 同一批确认在执行器上排在一起，由一次加载任务合并查询
+     */
+    private void onChannelSubscribed(byte[] channel) {
+        long[] parsed = parseChannel(new String(channel, StandardCharsets.UTF_8));
+        UserPresence presence = parsed == null ? null : index.get(parsed[0]);
+        if (presence == null || presence.loaded || --presence.unconfirmedChannels > 0) {
+            return;
+        }
+        confirmedUsers.add(presence.userId);
+        if (confirmedUsers.size() == 1) {
+            executor.execute(this::loadConfirmed);
+        }
+    }
+
+    /**
+     * 加载所有频道都已确认的用户的初始状态
+     */
+    private void loadConfirmed() {
+        List<Long> userIds = new ArrayList<>(confirmedUsers);
+        confirmedUsers.clear();
+        try {
+            this.loadInBatches(userIds);
+        } catch (Exception e) {
+            // 未加载的用户由定时校对补齐
+            logger.warn("RedisIMPresenceService.loadConfirmed|加载在线状态失败, users:{}", userIds.size(), e);
+        }
+    }
+
+    /**
+     * 超过等待时间仍未收到全部订阅确认的用户，直接加载初始状态
+     */
+    private void loadUnconfirmed(List<Long> userIds) {
+        List<Long> unloaded = new ArrayList<>();
+        for (Long userId : userIds) {
+            UserPresence presence = index.get(userId);
+            if (presence != null && !presence.loaded) {
+                unloaded.add(userId);
+            }
+        }
+        if (unloaded.isEmpty()) {
+            return;
+        }
+        logger.warn("RedisIMPresenceService.loadUnconfirmed|等待订阅确认超时，直接加载在线状态, users:{}", unloaded.size());
+        try {
+            this.loadInBatches(unloaded);
+        } catch (Exception e) {
+            logger.warn("RedisIMPresenceService.loadUnconfirmed|加载在线状态失败, users:{}", unloaded.size(), e);
+        }
+    }
+
+    /**
+     * 处理键空间通知
+     * 消息体为触发的命令，初始状态加载之前的通知忽略
+     */
+    private void onKeyspaceEvent(Message message) {
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        String operation = new String(message.getBody(), StandardCharsets.UTF_8);
+        boolean online;
+        if ("set".equals(operation)) {
+            online = true;
+        } else if ("del".equals(operation) || "expired".equals(operation)) {
+            online = false;
+        } else {
+            // expire等续期命令不改变在线状态
+            return;
+        }
+
+        long[] parsed = parseChannel(channel);
+        if (parsed == null) {
+            logger.warn("RedisIMPresenceService.onKeyspaceEvent|无法解析的频道:{}", channel);
+            return;
+        }
+        UserPresence presence = index.get(parsed[0]);
+        if (presence != null && presence.loaded) {
+            this.apply(presence, (int) parsed[1], online);
+        }
+    }
+
+    /**
+     * 解析键空间通知频道
+     * 频道格式：__keyspace@db__:im:user:server_id:userId:terminal
+     *
+     * @return 用户ID和终端类型，无法解析时返回null
+     */
+    private static long[] parseChannel(String channel) {
+        int terminalIdx = channel.lastIndexOf(IMConstants.REDIS_KEY_SPLIT);
+        int userIdx = channel.lastIndexOf(IMConstants.REDIS_KEY_SPLIT, terminalIdx - 1);
+        if (userIdx < 0) {
+            return null;
+        }
+        try {
+            return new long[]{Long.parseLong(channel.substring(userIdx + 1, terminalIdx)),
+                              Integer.parseInt(channel.substring(terminalIdx + 1))};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 更新终端的在线状态，在线终端位图变化时推送事件
+     */
+    private void apply(UserPresence presence, int terminal, boolean online) {
+        if (terminal < 0 || terminal >= Integer.SIZE) {
+            return;
+        }
+        int bit = 1 << terminal;
+        int before;
+        int after;
+        synchronized (presence) {
+            before = presence.terminalMask;
+            after = online ? before | bit : before & ~bit;
+            if (before == after) {
+                return;
+            }
+            presence.terminalMask = after;
+        }
+
+        IMPresenceEventType type = before == 0 ? IMPresenceEventType.ONLINE
+                : after == 0 ? IMPresenceEventType.OFFLINE : IMPresenceEventType.TERMINAL_CHANGE;
+        IMPresenceEvent event = new IMPresenceEvent(presence.userId, type, terminal, online, terminals(after));
+        eventCounter.increment();
+        for (Subscription subscription : presence.subscriptions) {
+            try {
+                subscription.listener.onPresenceChange(event);
+            } catch (Exception e) {
+                logger.error("RedisIMPresenceService.apply|在线状态监听器处理失败, event:{}", event, e);
+            }
+        }
+    }
+
+    /**
+     * 定时全量校对，补齐断线期间丢失的通知
+     */
+    private void resync() {
+        try {
+            this.loadInBatches(new ArrayList<>(index.keySet()));
+        } catch (Exception e) {
+            logger.warn("RedisIMPresenceService.resync|在线状态校对失败", e);
+        }
+    }
+
+    /**
+     * 按批加载用户的在线状态，每批一次MGET
+     */
+    private void loadInBatches(List<Long> userIds) {
+        for (int from = 0; from < userIds.size(); from += RESYNC_BATCH_USERS) {
+            this.load(userIds.subList(from, Math.min(userIds.size(), from + RESYNC_BATCH_USERS)));
+        }
+    }
+
+    /**
+     * 批量查询用户各终端的路由，一次MGET，只在执行器线程上调用
+     * 所连服务端已下线的终端按不在线处理；已加载过的用户为发生变化的终端推送事件，
+     * 第一次加载的用户只设置状态，不推送事件
+     *
+     * @param userIds 用户ID
+     */
+    private void load(List<Long> userIds) {
+        List<Integer> terminalCodes = IMTerminalType.getAllCode();
+        int size = userIds.size() * terminalCodes.size();
+        long[] queryUserIds = new long[size];
+        int[] queryTerminals = new int[size];
+        int idx = 0;
+        for (Long userId : userIds) {
+            for (Integer terminal : terminalCodes) {
+                queryUserIds[idx] = userId;
+                queryTerminals[idx++] = terminal;
+            }
+        }
+        int[] serverIds = imRouteRepository.getServerIds(queryUserIds, queryTerminals);
+
+        for (int i = 0; i < size; i++) {
+            UserPresence presence = index.get(queryUserIds[i]);
+            if (presence == null || queryTerminals[i] < 0 || queryTerminals[i] >= Integer.SIZE) {
+                continue;
+            }
+            boolean online = serverIds[i] != IMRouteRepository.NOT_ONLINE && imServerRegistry.isAlive(serverIds[i]);
+            if (presence.loaded) {
+                this.apply(presence, queryTerminals[i], online);
+            } else {
+                synchronized (presence) {
+                    int bit = 1 << queryTerminals[i];
+                    presence.terminalMask = online ? presence.terminalMask | bit : presence.terminalMask & ~bit;
+                }
+            }
+        }
+        for (Long userId : userIds) {
+            UserPresence presence = index.get(userId);
+            if (presence != null) {
+                presence.loaded = true;
+            }
+        }
+    }
+
+    /**
+     * 用户各终端路由键的键空间通知频道
+     */
+    private List<ChannelTopic> topics(Collection<Long> userIds) {
+        String prefix = IMSdkConstants.REDIS_KEYSPACE_CHANNEL_PREFIX + imSdkProperties.getPresence().getDatabase() + "__:"
+                + IMConstants.IM_USER_SERVER_ID + IMConstants.REDIS_KEY_SPLIT;
+        List<Integer> terminalCodes = IMTerminalType.getAllCode();
+        List<ChannelTopic> topics = new ArrayList<>(userIds.size() * terminalCodes.size());
+        for (Long userId : userIds) {
+            for (Integer terminal : terminalCodes) {
+                topics.add(new ChannelTopic(prefix + userId + IMConstants.REDIS_KEY_SPLIT + terminal));
+            }
+        }
+        return topics;
+    }
+
+    /**
+     * 在线终端位图转换为终端类型编码列表
+     */
+    private static List<Integer> terminals(int mask) {
+        if (mask == 0) {
+            return Collections.emptyList();
+        }
+        List<Integer> terminals = new ArrayList<>(Integer.bitCount(mask));
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            terminals.add(Integer.numberOfTrailingZeros(bits));
+        }
+        return Collections.unmodifiableList(terminals);
+    }
+
+    /**
+     * 单个用户的在线状态和关注该用户的订阅
+     */
+    private static final class UserPresence {
+
+        private final long userId;
+
+        /**
+         * 在线终端位图，第n位表示编码为n的终端在线
+         */
+        private int terminalMask;
+
+        private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+        /**
+         * 尚未收到订阅确认的频道数，只在执行器线程上访问
+         */
+        private int unconfirmedChannels = IMTerminalType.getAllCode().size();
+
+        /**
+         * 是否已加载初始状态，只在执行器线程上访问
+         */
+        private boolean loaded;
+
+        private UserPresence(long userId) {
+            this.userId = userId;
+        }
+    }
+
+    /**
+     * 键空间通知和订阅确认的监听器
+     * 订阅容器在自己的线程上回调，这里只转交单线程执行器，保证通知、订阅确认和状态加载按顺序处理
+     */
+    private final class KeyspaceListener implements MessageListener, SubscriptionListener {
+
+        @Override
+        public void onMessage(Message message, byte[] pattern) {
+            executor.execute(() -> RedisIMPresenceService.this.onKeyspaceEvent(message));
+        }
+
+        @Override
+        public void onChannelSubscribed(byte[] channel, long count) {
+            executor.execute(() -> RedisIMPresenceService.this.onChannelSubscribed(channel));
+        }
+    }
+
+    /**
+     * 订阅句柄的实现
+     */
+    private final class Subscription implements IMPresenceSubscription {
+
+        private final IMPresenceListener listener;
+
+        /**
+         * 该订阅关注的用户
+         */
+        private final Set<Long> userIds = ConcurrentHashMap.newKeySet();
+
+        private Subscription(IMPresenceListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void addUsers(Collection<Long> userIds) {
+            if (userIds != null && !userIds.isEmpty()) {
+                RedisIMPresenceService.this.addUsers(this, userIds);
+            }
+        }
+
+        @Override
+        public void removeUsers(Collection<Long> userIds) {
+            if (userIds != null && !userIds.isEmpty()) {
+                RedisIMPresenceService.this.removeUsers(this, userIds);
+            }
+        }
+
+        @Override
+        public Map<Long, List<IMTerminalType>> getOnlineTerminals() {
+            Map<Long, List<IMTerminalType>> onlineMap = new HashMap<>();
+            for (Long userId : userIds) {
+                UserPresence presence = index.get(userId);
+                if (presence == null) {
+                    continue;
+                }
+                int mask;
+                synchronized (presence) {
+                    mask = presence.terminalMask;
+                }
+                if (mask == 0) {
+                    continue;
+                }
+                List<IMTerminalType> terminalTypes = new ArrayList<>(Integer.bitCount(mask));
+                for (Integer terminal : terminals(mask)) {
+                    terminalTypes.add(IMTerminalType.getByCode(terminal));
+                }
+                onlineMap.put(userId, terminalTypes);
+            }
+            return onlineMap;
+        }
+
+        @Override
+        public void cancel() {
+            RedisIMPresenceService.this.removeUsers(this, new ArrayList<>(userIds));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.lb.im.sdk.infrastructure.redis;
+
+/**
+ * Redis字节数据工具类
+ * <p>
+ * 直接在字节数组上读写十进制整数，供路由、服务端注册表等高频访问Redis的组件使用，
+ * 避免经过String和JSON的中间转换。
+ */
+public final class RedisBytes {
+
+    /**
+     * 无法解析时返回的值
+     */
+    public static final int NOT_A_NUMBER = -1;
+
+    private RedisBytes() {
+    }
+
+    /**
+     * 按十进制写入数字
+     *
+     * @param buffer 目标缓冲区，需要有足够的剩余空间（long最多20个字节）
+     * @param pos    写入位置
+     * @param value  需要写入的数字
+     * @return 写入后的位置
+     */
+    public static int writeDecimal(byte[] buffer, int pos, long value) {
+        if (value == 0) {
+            buffer[pos] = '0';
+            return pos + 1;
+        }
+        if (value < 0) {
+            buffer[pos++] = '-';
+        }
+        // 先计算位数，再从低位向高位写入；使用负数运算以兼容Long.MIN_VALUE
+        long negative = value < 0 ? value : -value;
+        int digits = 0;
+        for (long v = negative; v != 0; v /= 10) {
+            digits++;
+        }
+        int end = pos + digits;
+        for (int i = end - 1; i >= pos; i--) {
+            buffer[i] = (byte) ('0' - negative % 10);
+            negative /= 10;
+        }
+        return end;
+    }
+
+    /**
+     * 从字节中解析非负整数
+     * 兼容纯数字和FastJson序列化的带引号字符串两种形式，忽略开头的空白和引号
+     *
+     * @param value 字节数据
+     * @return 解析出的整数，数据不存在或无法解析时返回{@link #NOT_A_NUMBER}
+     */
+    public static int parseInt(byte[] value) {
+        if (value == null) {
+            return NOT_A_NUMBER;
+        }
+        int i = 0;
+        while (i < value.length && (value[i] == '"' || value[i] == ' ')) {
+            i++;
+        }
+        int result = 0;
+        int digits = 0;
+        for (; i < value.length; i++) {
+            int digit = value[i] - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            result = result * 10 + digit;
+            digits++;
+        }
+        return digits == 0 ? NOT_A_NUMBER : result;
+    }
+}
@@ -0,0 +1,33 @@
+package com.lb.im.sdk.infrastructure.route;
+
+/**
+ * 用户路由数据访问接口
+ * 
+ * 查询用户某个终端当前连接的IM服务端ID（即IM_USER_SERVER_ID:userId:terminal键的值）。
+ * 这是发送路径上调用最频繁的查询，接口只使用基本类型，实现应尽量避免创建中间对象。
+ */
+public interface IMRouteRepository {
+
+    /**
+     * 终端不在线时返回的服务端ID
+     */
+    int NOT_ONLINE = -1;
+
+    /**
+     * 查询单个用户终端连接的服务端ID
+     *
+     * @param userId   用户ID
+     * @param terminal 终端类型
+     * @return 服务端ID，终端不在线时返回{@link #NOT_ONLINE}
+     */
+    int getServerId(long userId, int terminal);
+
+    /**
+     * 批量查询用户终端连接的服务端ID，单机模式下一次网络往返完成，集群模式下各主节点并行查询
+     *
+     * @param userIds   用户ID数组
+     * @param terminals 终端类型数组，与用户ID数组一一对应
+     * @return 服务端ID数组，与入参顺序一致，不在线的位置为{@link #NOT_ONLINE}
+     */
+    int[] getServerIds(long[] userIds, int[] terminals);
+}
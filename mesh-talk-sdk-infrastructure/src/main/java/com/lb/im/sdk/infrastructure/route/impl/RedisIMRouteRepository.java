@@ -0,0 +1,287 @@
+package com.lb.im.sdk.infrastructure.route.impl;
+
+import com.lb.im.common.domain.constans.IMConstants;
+import com.lb.im.sdk.infrastructure.config.IMSdkProperties;
+import com.lb.im.sdk.infrastructure.redis.RedisBytes;
+import com.lb.im.sdk.infrastructure.route.IMRouteRepository;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于Redis字节连接的用户路由数据访问实现
+ * <p>
+ * 设计说明：
+ * 1. 键的固定前缀（IM_USER_SERVER_ID:）预先编码为字节，用户ID和终端类型直接按十进制写入线程复用的缓冲区，
+ *    不经过String.join和字符串编码
+ * 2. 直接使用RedisConnection的字节命令读取值，不经过RedisTemplate和FastJson序列化器
+ * 3. 值只是一个小整数，直接从字节中解析，兼容带引号的JSON字符串形式
+ * 4. Redis集群模式下，批量查询的键按槽位分组，每个槽位一条MGET（集群不允许跨槽位MGET），
+ *    再按槽位所在的主节点分组并行查询，结果按入参下标写回，群聊扇出的查询耗时不随节点数增长
+ * 5. 同一节点上各槽位的MGET以流水线方式一次发出、一次等待结果，往返次数不随槽位数增长；
+ *    连接不支持流水线时（例如Jedis集群连接）退回到逐个槽位查询
+ */
+public class RedisIMRouteRepository implements IMRouteRepository, InitializingBean, DisposableBean {
+
+    /**
+     * 键前缀的字节形式，格式：IM_USER_SERVER_ID:
+     */
+    private static final byte[] KEY_PREFIX = (IMConstants.IM_USER_SERVER_ID + IMConstants.REDIS_KEY_SPLIT).getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * 键分隔符的字节形式
+     */
+    private static final byte[] KEY_SPLIT = IMConstants.REDIS_KEY_SPLIT.getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * 键编码缓冲区，前缀 + long的最大位数 + 分隔符 + int的最大位数
+     */
+    private static final ThreadLocal<byte[]> KEY_BUFFER = ThreadLocal.withInitial(() -> new byte[KEY_PREFIX.length + KEY_SPLIT.length + 32]);
+
+    @Autowired
+    private RedisConnectionFactory redisConnectionFactory;
+
+    @Autowired
+    private IMSdkProperties imSdkProperties;
+
+    /**
+     * 集群模式下并行查询各主节点的线程池，线程满时由调用线程执行
+     */
+    private ThreadPoolExecutor clusterExecutor;
+
+    /**
+     * 集群连接是否不支持流水线，第一次打开流水线失败后置为true
+     */
+    private volatile boolean pipelineUnsupported;
+
+    @Override
+    public void afterPropertiesSet() {
+        int parallelism = Math.max(1, imSdkProperties.getRoute().getClusterParallelism());
+        AtomicInteger threadIndex = new AtomicInteger();
+        clusterExecutor = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                r -> {
+                    Thread thread = new Thread(r, "im-route-cluster-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        // 非集群模式下不会创建线程
+        clusterExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void destroy() {
+        if (clusterExecutor != null) {
+            clusterExecutor.shutdown();
+        }
+    }
+
+    @Override
+    public int getServerId(long userId, int terminal) {
+        byte[] key = encodeKey(userId, terminal);
+        RedisConnection connection = redisConnectionFactory.getConnection();
+        try {
+            return RedisBytes.parseInt(connection.stringCommands().get(key));
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Override
+    public int[] getServerIds(long[] userIds, int[] terminals) {
+        int[] serverIds = new int[userIds.length];
+        if (userIds.length == 0) {
+            return serverIds;
+        }
+
+        byte[][] keys = new byte[userIds.length][];
+        for (int i = 0; i < userIds.length; i++) {
+            keys[i] = encodeKey(userIds[i], terminals[i]);
+        }
+
+        List<byte[]> values;
+        RedisConnection connection = redisConnectionFactory.getConnection();
+        try {
+            if (connection instanceof RedisClusterConnection && !ClusterSlotHashUtil.isSameSlotForAllKeys(keys)) {
+                this.getServerIdsBySlot((RedisClusterConnection) connection, keys, serverIds);
+                return serverIds;
+            }
+            values = connection.stringCommands().mGet(keys);
+        } finally {
+            connection.close();
+        }
+
+        for (int i = 0; i < serverIds.length; i++) {
+            serverIds[i] = values == null ? NOT_ONLINE : RedisBytes.parseInt(values.get(i));
+        }
+        return serverIds;
+    }
+
+    /**
+     * 集群模式下的批量查询
+     * 键按槽位分组、槽位按主节点分组，其他节点的查询交给线程池，第一个节点的查询在调用线程上执行
+     *
+     * @param connection 调用线程持有的集群连接
+     * @param keys       路由键
+     * @param serverIds  查询结果，与键的下标一一对应
+     */
+    private void getServerIdsBySlot(RedisClusterConnection connection, byte[][] keys, int[] serverIds) {
+        Map<Integer, SlotBatch> slotBatches = new HashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            slotBatches.computeIfAbsent(ClusterSlotHashUtil.calculateSlot(keys[i]), SlotBatch::new).add(i);
+        }
+        // 槽位与节点的对应关系来自客户端缓存的集群拓扑，不产生网络请求
+        Map<RedisClusterNode, List<SlotBatch>> nodeBatches = new HashMap<>();
+        for (SlotBatch batch : slotBatches.values()) {
+            nodeBatches.computeIfAbsent(connection.clusterGetNodeForSlot(batch.slot), o -> new ArrayList<>()).add(batch);
+        }
+
+        List<Future<?>> futures = new ArrayList<>(nodeBatches.size());
+        List<SlotBatch> local = null;
+        for (List<SlotBatch> batches : nodeBatches.values()) {
+            if (local == null) {
+                local = batches;
+                continue;
+            }
+            futures.add(clusterExecutor.submit(() -> {
+                RedisClusterConnection nodeConnection = redisConnectionFactory.getClusterConnection();
+                try {
+                    mGetBySlot(nodeConnection, batches, keys, serverIds);
+                } finally {
+                    nodeConnection.close();
+                }
+            }));
+        }
+        mGetBySlot(connection, local, keys, serverIds);
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("查询用户路由被中断", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException("查询用户路由失败", cause);
+            }
+        }
+    }
+
+    /**
+     * 查询同一节点上的各个槽位，每个槽位一条MGET，多个槽位时以流水线方式发出
+     * 各节点写入结果数组中互不重叠的下标，调用线程通过Future.get()看到写入结果
+     */
+    @SuppressWarnings("unchecked")
+    private void mGetBySlot(RedisClusterConnection connection, List<SlotBatch> batches, byte[][] keys, int[] serverIds) {
+        if (batches.size() == 1 || !this.openPipeline(connection)) {
+            for (SlotBatch batch : batches) {
+                fill(batch, connection.stringCommands().mGet(batch.keys(keys)), serverIds);
+            }
+            return;
+        }
+
+        List<Object> results;
+        try {
+            for (SlotBatch batch : batches) {
+                connection.stringCommands().mGet(batch.keys(keys));
+            }
+        } finally {
+            // 任一MGET失败时由closePipeline抛出异常
+            results = connection.closePipeline();
+        }
+        for (int i = 0; i < batches.size(); i++) {
+            fill(batches.get(i), (List<byte[]>) results.get(i), serverIds);
+        }
+    }
+
+    /**
+     * 打开流水线，连接不支持时记住结果，之后不再尝试
+     */
+    private boolean openPipeline(RedisClusterConnection connection) {
+        if (pipelineUnsupported) {
+            return false;
+        }
+        try {
+            connection.openPipeline();
+            return true;
+        } catch (UnsupportedOperationException e) {
+            pipelineUnsupported = true;
+            return false;
+        }
+    }
+
+    /**
+     * 按槽位内的顺序把MGET结果写回入参下标
+     */
+    private static void fill(SlotBatch batch, List<byte[]> values, int[] serverIds) {
+        for (int i = 0; i < batch.size; i++) {
+            serverIds[batch.indexes[i]] = values == null ? NOT_ONLINE : RedisBytes.parseInt(values.get(i));
+        }
+    }
+
+    /**
+     * 编码路由键，格式：IM_USER_SERVER_ID:userId:terminal
+     * 在线程复用的缓冲区中拼接，最后复制出一个长度精确的数组交给Redis客户端
+     */
+    static byte[] encodeKey(long userId, int terminal) {
+        byte[] buffer = KEY_BUFFER.get();
+        System.arraycopy(KEY_PREFIX, 0, buffer, 0, KEY_PREFIX.length);
+        int pos = RedisBytes.writeDecimal(buffer, KEY_PREFIX.length, userId);
+        System.arraycopy(KEY_SPLIT, 0, buffer, pos, KEY_SPLIT.length);
+        pos = RedisBytes.writeDecimal(buffer, pos + KEY_SPLIT.length, terminal);
+        return Arrays.copyOf(buffer, pos);
+    }
+
+    /**
+     * 同一槽位的键在入参中的下标
+     */
+    private static final class SlotBatch {
+
+        private final int slot;
+
+        private int[] indexes = new int[4];
+
+        private int size;
+
+        private SlotBatch(int slot) {
+            this.slot = slot;
+        }
+
+        private void add(int index) {
+            if (size == indexes.length) {
+                indexes = Arrays.copyOf(indexes, size << 1);
+            }
+            indexes[size++] = index;
+        }
+
+        /**
+         * 取出该槽位的键
+         */
+        private byte[][] keys(byte[][] keys) {
+            byte[][] slotKeys = new byte[size][];
+            for (int i = 0; i < size; i++) {
+                slotKeys[i] = keys[indexes[i]];
+            }
+            return slotKeys;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.lb.im.sdk.infrastructure.server;
+
+import java.util.Set;
+
+/**
+ * IM服务端注册表接口
+ * 
+ * 提供当前存活的IM服务端ID集合。IM服务端启动后会定时在Redis中更新心跳，
+ * 注册表据此判断哪些服务端可以接收消息。
+ * 实现应在本地缓存存活视图，查询方法不应产生Redis访问。
+ */
+public interface IMServerRegistry {
+
+    /**
+     * 获取当前存活的IM服务端ID集合
+     *
+     * @return 存活的服务端ID集合，没有存活的服务端时返回空集合
+     */
+    Set<Integer> getLiveServerIds();
+
+    /**
+     * 判断服务端是否存活
+     * 
+     * 发送路径上每个路由结果都会调用，必须是纯本地查询。
+     * 尚未获取到存活视图（从未见过心跳集合）时视为存活，避免误判导致消息被丢弃；
+     * 见过心跳集合后，心跳已超时的服务端一律视为下线。
+     *
+     * @param serverId 服务端ID
+     * @return 服务端是否存活
+     */
+    boolean isAlive(int serverId);
+}
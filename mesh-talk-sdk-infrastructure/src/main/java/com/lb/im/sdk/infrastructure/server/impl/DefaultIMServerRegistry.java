@@ -0,0 +1,162 @@
+package com.lb.im.sdk.infrastructure.server.impl;
+
+import com.lb.im.sdk.domain.constants.IMSdkConstants;
+import com.lb.im.sdk.infrastructure.config.IMSdkProperties;
+import com.lb.im.sdk.infrastructure.metrics.IMMetrics;
+import com.lb.im.sdk.infrastructure.redis.RedisBytes;
+import com.lb.im.sdk.infrastructure.server.IMServerRegistry;
+import io.micrometer.core.instrument.Gauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IM服务端注册表的默认实现
+ * <p>
+ * 设计说明：
+ * 1. IM服务端定时把Redis服务器时间写入心跳有序集合（im:server:heartbeat）中自己的分值
+ * 2. 后台线程定时读取分值在超时时间内的成员，作为存活视图缓存在本地，
+ *    发送路径上的存活判断只读本地位图，不产生Redis访问
+ * 3. 使用Redis服务器时间判断超时，不受各节点本地时钟偏差的影响
+ * 4. 尚未读取成功或从未见过心跳集合（例如服务端尚未上报心跳）时，视图视为未知，所有服务端按存活处理
+ * 5. 见过心跳集合之后，即使所有心跳都已超时（例如服务端集体宕机或网络分区），也发布空的存活视图，
+ *    此时所有服务端按下线处理，不会退回到未知状态
+ */
+public class DefaultIMServerRegistry implements IMServerRegistry, InitializingBean, DisposableBean {
+
+    // 日志记录器
+    private final Logger logger = LoggerFactory.getLogger(DefaultIMServerRegistry.class);
+
+    private static final byte[] HEARTBEAT_KEY = IMSdkConstants.IM_SERVER_HEARTBEAT.getBytes(StandardCharsets.UTF_8);
+
+    @Autowired
+    private IMSdkProperties imSdkProperties;
+
+    @Autowired
+    private RedisConnectionFactory redisConnectionFactory;
+
+    @Autowired
+    private IMMetrics imMetrics;
+
+    /**
+     * 当前的存活视图，为空表示未知
+     */
+    private volatile LiveServers liveServers;
+
+    /**
+     * 是否见过心跳集合，只由刷新线程访问
+     */
+    private boolean heartbeatSeen;
+
+    private ScheduledExecutorService scheduler;
+
+    @Override
+    public void afterPropertiesSet() {
+        long refreshIntervalMillis = imSdkProperties.getServer().getRefreshIntervalMillis();
+
+        Gauge.builder(IMMetrics.PREFIX + "server.live", this, registry -> registry.getLiveServerIds().size())
+                .description("存活的IM服务端数量")
+                .register(imMetrics.getRegistry());
+
+        // 异步刷新，不阻塞应用启动
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "im-server-registry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refresh, 0, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Override
+    public Set<Integer> getLiveServerIds() {
+        LiveServers current = liveServers;
+        return current == null ? Collections.emptySet() : current.serverIds;
+    }
+
+    @Override
+    public boolean isAlive(int serverId) {
+        LiveServers current = liveServers;
+        return current == null || (serverId >= 0 && current.bits.get(serverId));
+    }
+
+    /**
+     * 从心跳集合读取存活的服务端，刷新本地视图
+     * 读取失败时保留上一次的视图
+     */
+    private void refresh() {
+        RedisConnection connection = null;
+        try {
+            connection = redisConnectionFactory.getConnection();
+            // 心跳集合不存在时ZCARD返回0，用来区分"从未上报心跳"和"心跳全部超时"
+            Long total = connection.zSetCommands().zCard(HEARTBEAT_KEY);
+            if (total != null && total > 0) {
+                heartbeatSeen = true;
+            }
+            if (!heartbeatSeen) {
+                liveServers = null;
+                return;
+            }
+
+            long now = connection.serverCommands().time();
+            Set<byte[]> members = connection.zSetCommands()
+                    .zRangeByScore(HEARTBEAT_KEY, now - imSdkProperties.getServer().getHeartbeatTimeoutMillis(), Double.POSITIVE_INFINITY);
+
+            Set<Integer> serverIds = new HashSet<>();
+            BitSet bits = new BitSet();
+            if (members != null) {
+                for (byte[] member : members) {
+                    int serverId = RedisBytes.parseInt(member);
+                    if (serverId != RedisBytes.NOT_A_NUMBER) {
+                        serverIds.add(serverId);
+                        bits.set(serverId);
+                    }
+                }
+            }
+            if (serverIds.isEmpty()) {
+                logger.warn("DefaultIMServerRegistry.refresh|所有IM服务端的心跳都已超时");
+            }
+            liveServers = new LiveServers(Collections.unmodifiableSet(serverIds), bits);
+        } catch (Exception e) {
+            logger.warn("DefaultIMServerRegistry.refresh|刷新存活服务端失败，继续使用上一次的视图", e);
+        } finally {
+            if (connection != null) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * 存活视图快照，发布后不再修改
+     */
+    private static final class LiveServers {
+
+        private final Set<Integer> serverIds;
+
+        private final BitSet bits;
+
+        private LiveServers(Set<Integer> serverIds, BitSet bits) {
+            this.serverIds = serverIds;
+            this.bits = bits;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.lb.im.sdk.infrastructure.spool;
+
+import com.lb.im.common.domain.enums.IMListenerType;
+import com.lb.im.common.domain.model.IMSendResult;
+
+/**
+ * 离线消息暂存接口
+ * 
+ * 接收者不在线的发送结果先追加到本地日志，由后台线程批量交给离线消息存储，
+ * 发送线程不等待离线存储完成。
+ */
+public interface IMOfflineSpool {
+
+    /**
+     * 追加一条不在线的发送结果
+     * 只做序列化和内存拷贝，不等待刷盘
+     *
+     * @param listenerType 消息类型
+     * @param result       状态为NOT_ONLINE的发送结果
+     * @return 是否追加成功，暂存已满或出错时返回false，调用方应退回到直接通知监听器
+     */
+    boolean append(IMListenerType listenerType, IMSendResult<?> result);
+}
@@ -0,0 +1,494 @@
+package com.lb.im.sdk.infrastructure.spool.impl;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.lb.im.common.domain.enums.IMListenerType;
+import com.lb.im.common.domain.model.IMSendResult;
+import com.lb.im.sdk.domain.listener.OfflineMessageSink;
+import com.lb.im.sdk.domain.model.IMOfflineMessage;
+import com.lb.im.sdk.infrastructure.config.IMSdkProperties;
+import com.lb.im.sdk.infrastructure.metrics.IMMetrics;
+import com.lb.im.sdk.infrastructure.spool.IMOfflineSpool;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * 基于内存映射文件的离线消息暂存
+ * <p>
+ * 设计说明：
+ * 1. 日志由多个固定大小的段文件组成（序号.spool），只追加写入，写满后切换到下一个段
+ * 2. 每条记录为 长度(4字节) + CRC32(4字节) + JSON内容，重启后按校验和识别未写完的尾部
+ * 3. 发送线程只做序列化和一次内存拷贝；刷盘由后台线程按固定间隔合并执行（组提交），
+ *    发送线程不等待刷盘，宕机时最多丢失一个刷盘间隔内的记录
+ * 4. 后台线程按批读取记录交给离线消息存储，成功后把读取位置写入checkpoint文件并删除已读完的段；
+ *    存储失败时不推进读取位置，稍后重试，因此离线消息存储需要容忍重复
+ * 5. 段数量达到上限时拒绝追加，调用方退回到直接通知监听器，不会无限占用磁盘
+ * <p>
+ * 发布的指标：
+ * 1. im.sdk.spool.appended - 追加的记录数
+ * 2. im.sdk.spool.rejected - 暂存已满或出错而被拒绝的记录数
+ * 3. im.sdk.spool.drained - 交给离线消息存储的记录数
+ * 4. im.sdk.spool.store.failures - 离线消息存储失败的批次数
+ * 5. im.sdk.spool.segments - 磁盘上的段数量
+ */
+public class MappedIMOfflineSpool implements IMOfflineSpool, InitializingBean, DisposableBean {
+
+    // 日志记录器
+    private final Logger logger = LoggerFactory.getLogger(MappedIMOfflineSpool.class);
+
+    private static final String SEGMENT_SUFFIX = ".spool";
+
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    /**
+     * 记录头大小：长度和CRC32各4字节
+     */
+    private static final int HEADER_BYTES = 8;
+
+    private static final ThreadLocal<CRC32> CRC = ThreadLocal.withInitial(CRC32::new);
+
+    @Autowired
+    private IMSdkProperties imSdkProperties;
+
+    @Autowired
+    private OfflineMessageSink offlineMessageSink;
+
+    @Autowired
+    private IMMetrics imMetrics;
+
+    private Path directory;
+
+    private int segmentBytes;
+
+    private int maxSegments;
+
+    private int batchSize;
+
+    private long retryBackoffMillis;
+
+    /**
+     * 磁盘上的所有段，键为段序号
+     */
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+    /**
+     * 追加写入的锁，只保护内存拷贝和切换段
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * 当前写入的段
+     */
+    private volatile Segment active;
+
+    /**
+     * 上次刷盘后是否有新的写入
+     */
+    private volatile boolean dirty;
+
+    /**
+     * 读取位置，只由后台回放线程访问
+     */
+    private long readSeq;
+
+    private int readOffset;
+
+    /**
+     * 存储失败后下次重试的时间，只由后台回放线程访问
+     */
+    private long retryAt;
+
+    private RandomAccessFile checkpoint;
+
+    private ScheduledExecutorService executor;
+
+    private Counter appendedCounter;
+
+    private Counter rejectedCounter;
+
+    private Counter drainedCounter;
+
+    private Counter storeFailureCounter;
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        IMSdkProperties.Spool spool = imSdkProperties.getSpool();
+        directory = Paths.get(spool.getDirectory());
+        segmentBytes = spool.getSegmentBytes();
+        maxSegments = Math.max(2, spool.getMaxSegments());
+        batchSize = Math.max(1, spool.getBatchSize());
+        retryBackoffMillis = spool.getRetryBackoffMillis();
+        Files.createDirectories(directory);
+
+        this.recover();
+
+        appendedCounter = Counter.builder(IMMetrics.PREFIX + "spool.appended")
+                .description("追加到离线暂存的记录数")
+                .register(imMetrics.getRegistry());
+        rejectedCounter = Counter.builder(IMMetrics.PREFIX + "spool.rejected")
+                .description("暂存已满或出错而被拒绝的记录数")
+                .register(imMetrics.getRegistry());
+        drainedCounter = Counter.builder(IMMetrics.PREFIX + "spool.drained")
+                .description("交给离线消息存储的记录数")
+                .register(imMetrics.getRegistry());
+        storeFailureCounter = Counter.builder(IMMetrics.PREFIX + "spool.store.failures")
+                .description("离线消息存储失败的批次数")
+                .register(imMetrics.getRegistry());
+        Gauge.builder(IMMetrics.PREFIX + "spool.segments", segments, Map::size)
+                .description("磁盘上的离线暂存段数量")
+                .register(imMetrics.getRegistry());
+
+        // 刷盘和回放分别占用一个线程，离线消息存储变慢时不影响刷盘
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newScheduledThreadPool(2, r -> {
+            Thread thread = new Thread(r, "im-offline-spool-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flush, spool.getFlushIntervalMillis(), spool.getFlushIntervalMillis(), TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(this::drain, spool.getDrainIntervalMillis(), spool.getDrainIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (executor != null) {
+            executor.shutdown();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        Segment current = active;
+        if (current != null) {
+            current.buffer.force();
+        }
+        if (checkpoint != null) {
+            checkpoint.close();
+        }
+    }
+
+    @Override
+    public boolean append(IMListenerType listenerType, IMSendResult<?> result) {
+        byte[] body;
+        try {
+            body = encode(listenerType, result);
+        } catch (Exception e) {
+            logger.error("MappedIMOfflineSpool.append|离线消息序列化失败", e);
+            rejectedCounter.increment();
+            return false;
+        }
+        int recordBytes = HEADER_BYTES + body.length;
+        if (recordBytes > segmentBytes) {
+            rejectedCounter.increment();
+            return false;
+        }
+        CRC32 crc = CRC.get();
+        crc.reset();
+        crc.update(body, 0, body.length);
+        int checksum = (int) crc.getValue();
+
+        writeLock.lock();
+        try {
+            Segment segment = active;
+            if (segment.writePosition + recordBytes > segmentBytes) {
+                if (segments.size() >= maxSegments) {
+                    rejectedCounter.increment();
+                    return false;
+                }
+                segment = this.roll();
+            }
+            ByteBuffer writer = segment.writer;
+            writer.position(segment.writePosition);
+            writer.putInt(body.length);
+            writer.putInt(checksum);
+            writer.put(body);
+            // 写完整条记录后再发布写入位置，回放线程不会读到写了一半的记录
+            segment.writePosition = segment.writePosition + recordBytes;
+            dirty = true;
+        } catch (IOException e) {
+            logger.error("MappedIMOfflineSpool.append|创建离线暂存段失败", e);
+            rejectedCounter.increment();
+            return false;
+        } finally {
+            writeLock.unlock();
+        }
+        appendedCounter.increment();
+        return true;
+    }
+
+    /**
+     * 加载已有的段和读取位置，并创建新的写入段
+     * 上次运行时的段全部视为已写完，不再追加
+     */
+    private void recover() throws IOException {
+        File[] files = directory.toFile().listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                long seq;
+                try {
+                    seq = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                Segment segment = this.map(seq, file.toPath(), (int) file.length());
+                segment.writePosition = segment.capacity;
+                segment.sealed = true;
+                segments.put(seq, segment);
+            }
+        }
+
+        checkpoint = new RandomAccessFile(directory.resolve(CHECKPOINT_FILE).toFile(), "rw");
+        if (checkpoint.length() >= Long.BYTES + Integer.BYTES) {
+            checkpoint.seek(0);
+            readSeq = checkpoint.readLong();
+            readOffset = checkpoint.readInt();
+        }
+        // checkpoint之前的段已经回放完
+        this.deleteSegmentsBefore(readSeq);
+        if (!segments.isEmpty() && segments.firstKey() > readSeq) {
+            readSeq = segments.firstKey();
+            readOffset = 0;
+        }
+
+        long nextSeq = segments.isEmpty() ? Math.max(readSeq, 1L) : segments.lastKey() + 1;
+        active = this.create(nextSeq);
+        if (segments.size() == 1) {
+            readSeq = nextSeq;
+            readOffset = 0;
+        }
+        if (segments.size() > 1) {
+            logger.info("MappedIMOfflineSpool.recover|发现{}个未回放完的离线暂存段", segments.size() - 1);
+        }
+    }
+
+    /**
+     * 当前段写满，刷盘后切换到新段，调用方持有写入锁
+     */
+    private Segment roll() throws IOException {
+        Segment previous = active;
+        previous.buffer.force();
+        Segment next = this.create(previous.seq + 1);
+        active = next;
+        previous.sealed = true;
+        return next;
+    }
+
+    private Segment create(long seq) throws IOException {
+        Path path = directory.resolve(String.format("%020d%s", seq, SEGMENT_SUFFIX));
+        Segment segment = this.map(seq, path, segmentBytes);
+        segments.put(seq, segment);
+        return segment;
+    }
+
+    private Segment map(long seq, Path path, int size) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(size);
+            // 映射在文件关闭后仍然有效
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new Segment(seq, path, buffer, size);
+        }
+    }
+
+    /**
+     * 组提交：一个刷盘间隔内的所有写入合并为一次刷盘
+     */
+    private void flush() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        try {
+            active.buffer.force();
+        } catch (Exception e) {
+            logger.warn("MappedIMOfflineSpool.flush|离线暂存刷盘失败", e);
+        }
+    }
+
+    /**
+     * 按批读取记录交给离线消息存储，直到没有新记录或存储失败
+     */
+    private void drain() {
+        if (System.currentTimeMillis() < retryAt) {
+            return;
+        }
+        try {
+            while (true) {
+                long seq = readSeq;
+                int offset = readOffset;
+                List<IMOfflineMessage> batch = new ArrayList<>(Math.min(batchSize, 1024));
+                while (batch.size() < batchSize) {
+                    Segment segment = segments.get(seq);
+                    if (segment == null) {
+                        Long nextSeq = segments.higherKey(seq);
+                        if (nextSeq == null) {
+                            break;
+                        }
+                        seq = nextSeq;
+                        offset = 0;
+                        continue;
+                    }
+                    // 先读封存标记再读写入位置，封存的段写入位置不再变化
+                    boolean sealed = segment.sealed;
+                    int limit = segment.writePosition;
+                    int length = offset + HEADER_BYTES <= limit ? segment.reader.getInt(offset) : 0;
+                    if (length <= 0 || offset + HEADER_BYTES + length > limit) {
+                        // 封存的段读到末尾或未写完的尾部，切换到下一个段；当前段则等待新的写入
+                        if (sealed && segments.higherKey(seq) != null) {
+                            seq = segments.higherKey(seq);
+                            offset = 0;
+                            continue;
+                        }
+                        break;
+                    }
+                    int checksum = segment.reader.getInt(offset + 4);
+                    byte[] body = new byte[length];
+                    ByteBuffer reader = segment.reader;
+                    reader.position(offset + HEADER_BYTES);
+                    reader.get(body);
+                    CRC32 crc = CRC.get();
+                    crc.reset();
+                    crc.update(body, 0, length);
+                    if ((int) crc.getValue() != checksum) {
+                        // 只可能出现在宕机前未刷盘的尾部，跳过该段剩余部分
+                        logger.warn("MappedIMOfflineSpool.drain|离线暂存记录校验失败, segment:{}, offset:{}", seq, offset);
+                        if (sealed && segments.higherKey(seq) != null) {
+                            seq = segments.higherKey(seq);
+                            offset = 0;
+                            continue;
+                        }
+                        break;
+                    }
+                    offset += HEADER_BYTES + length;
+                    IMOfflineMessage message = decode(body);
+                    if (message != null) {
+                        batch.add(message);
+                    }
+                }
+
+                if (!batch.isEmpty()) {
+                    offlineMessageSink.store(batch);
+                    drainedCounter.increment(batch.size());
+                }
+                if (seq != readSeq || offset != readOffset) {
+                    this.commit(seq, offset);
+                }
+                if (batch.size() < batchSize) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            storeFailureCounter.increment();
+            retryAt = System.currentTimeMillis() + retryBackoffMillis;
+            logger.error("MappedIMOfflineSpool.drain|离线消息存储失败，{}毫秒后重试", retryBackoffMillis, e);
+        }
+    }
+
+    /**
+     * 推进读取位置并持久化，删除已经读完的段
+     */
+    private void commit(long seq, int offset) throws IOException {
+        checkpoint.seek(0);
+        checkpoint.writeLong(seq);
+        checkpoint.writeInt(offset);
+        checkpoint.getChannel().force(false);
+        readSeq = seq;
+        readOffset = offset;
+        this.deleteSegmentsBefore(seq);
+    }
+
+    private void deleteSegmentsBefore(long seq) throws IOException {
+        for (Segment segment : new ArrayList<>(segments.headMap(seq).values())) {
+            segments.remove(segment.seq);
+            Files.deleteIfExists(segment.path);
+        }
+    }
+
+    private static byte[] encode(IMListenerType listenerType, IMSendResult<?> result) {
+        JSONObject record = new JSONObject();
+        record.put("listenerType", listenerType.name());
+        record.put("spoolTime", System.currentTimeMillis());
+        record.put("result", result);
+        return JSON.toJSONBytes(record);
+    }
+
+    @SuppressWarnings("unchecked")
+    private IMOfflineMessage decode(byte[] body) {
+        try {
+            JSONObject record = JSON.parseObject(new String(body, StandardCharsets.UTF_8));
+            IMListenerType listenerType = IMListenerType.valueOf(record.getString("listenerType"));
+            IMSendResult<Object> result = record.getJSONObject("result").toJavaObject(IMSendResult.class);
+            Long spoolTime = record.getLong("spoolTime");
+            return new IMOfflineMessage(listenerType, result, spoolTime == null ? 0L : spoolTime);
+        } catch (Exception e) {
+            logger.error("MappedIMOfflineSpool.decode|离线暂存记录解析失败，已跳过", e);
+            return null;
+        }
+    }
+
+    /**
+     * 日志段
+     */
+    private static final class Segment {
+
+        private final long seq;
+
+        private final Path path;
+
+        private final MappedByteBuffer buffer;
+
+        private final int capacity;
+
+        /**
+         * 写入视图，只在持有写入锁时使用
+         */
+        private final ByteBuffer writer;
+
+        /**
+         * 读取视图，只由回放线程使用
+         */
+        private final ByteBuffer reader;
+
+        /**
+         * 已发布的写入位置
+         */
+        private volatile int writePosition;
+
+        /**
+         * 是否已写完，不再追加
+         */
+        private volatile boolean sealed;
+
+        private Segment(long seq, Path path, MappedByteBuffer buffer, int capacity) {
+            this.seq = seq;
+            this.path = path;
+            this.buffer = buffer;
+            this.capacity = capacity;
+            this.writer = buffer.duplicate();
+            this.reader = buffer.duplicate();
+        }
+    }
+}
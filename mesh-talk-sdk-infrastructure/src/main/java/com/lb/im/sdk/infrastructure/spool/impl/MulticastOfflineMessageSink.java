@@ -0,0 +1,62 @@
+package com.lb.im.sdk.infrastructure.spool.impl;
+
+import com.lb.im.sdk.domain.listener.OfflineMessageSink;
+import com.lb.im.sdk.domain.model.IMOfflineMessage;
+import com.lb.im.sdk.infrastructure.metrics.IMMetrics;
+import com.lb.im.sdk.infrastructure.multicaster.MessageListenerMulticaster;
+import io.micrometer.core.instrument.Counter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+
+import java.util.List;
+
+/**
+ * 默认的离线消息存储
+ *
+ * 业务方没有提供OfflineMessageSink时使用，把离线消息回放给NOT_ONLINE监听器，
+ * 监听器的处理从发送线程移到后台线程，原有监听器不需要修改。
+ * <p>
+ * 监听器处理某条消息失败时只记录日志和指标，不向暂存日志抛出异常：
+ * 整批重试会让已经处理成功的消息再次交给监听器，而一条始终失败的消息会让暂存日志一直停在原位置。
+ * <p>
+ * 发布的指标：
+ * 1. im.sdk.spool.sink.failures - 监听器处理失败而被丢弃的离线消息数
+ */
+public class MulticastOfflineMessageSink implements OfflineMessageSink, InitializingBean {
+
+    // 日志记录器
+    private final Logger logger = LoggerFactory.getLogger(MulticastOfflineMessageSink.class);
+
+    // 消息监听器多播器，延迟注入
+    @Lazy
+    @Autowired
+    private MessageListenerMulticaster messageListenerMulticaster;
+
+    @Autowired
+    private IMMetrics imMetrics;
+
+    private Counter failureCounter;
+
+    @Override
+    public void afterPropertiesSet() {
+        failureCounter = Counter.builder(IMMetrics.PREFIX + "spool.sink.failures")
+                .description("监听器处理失败而被丢弃的离线消息数")
+                .register(imMetrics.getRegistry());
+    }
+
+    @Override
+    public void store(List<IMOfflineMessage> messages) {
+        for (IMOfflineMessage message : messages) {
+            try {
+                messageListenerMulticaster.multicast(message.getListenerType(), message.getResult());
+            } catch (Exception e) {
+                failureCounter.increment();
+                logger.error("MulticastOfflineMessageSink.store|监听器处理离线消息失败，已丢弃, listenerType:{}, result:{}",
+                             message.getListenerType(), message.getResult(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.lb.im.sdk.infrastructure.tracker;
+
+import com.lb.im.common.domain.enums.IMListenerType;
+import com.lb.im.common.domain.model.IMSendResult;
+import com.lb.im.sdk.domain.model.IMStampedReceiveInfo;
+
+/**
+ * 消息投递跟踪器接口
+ * 
+ * 在发送时为信封分配消息ID和发送时间，并登记需要回执的接收者；
+ * 收到发送结果时找到对应的登记记录，统计端到端的投递延迟，
+ * 过期仍未收到结果的记录单独计数。结果可能被同一消费者组中的其他实例消费，
+ * 多实例部署时过期的记录不一定是丢失或超时。
+ */
+public interface IMDeliveryTracker {
+
+    /**
+     * 为即将发送的信封分配消息ID和发送时间，需要回执时登记其中的每个接收者
+     *
+     * @param receiveInfo 即将发送的信封
+     */
+    void track(IMStampedReceiveInfo receiveInfo);
+
+    /**
+     * 处理从结果队列收到的发送结果
+     *
+     * @param listenerType 结果对应的监听器类型
+     * @param result       发送结果
+     * @param messageId    服务端带回的信封消息ID，服务端未带回时为空
+     */
+    void complete(IMListenerType listenerType, IMSendResult<?> result, Long messageId);
+}
@@ -0,0 +1,352 @@
+package com.lb.im.sdk.infrastructure.tracker;
+
+/**
+ * 待确认发送表
+ * <p>
+ * 以long类型的关联键保存尚未收到发送结果的消息的发送时间和指令类型。
+ * 使用开放寻址（线性探测）的基本类型数组实现，不为每条记录创建对象，
+ * 删除时采用后移填补的方式，不留下墓碑标记。
+ * <p>
+ * 除普通记录外还可以登记别名记录，别名记录指向另一条记录的关联键，用于用第二种关联键找到同一条记录；
+ * 别名记录过期时不回调，也不计入超时。
+ * <p>
+ * 为降低锁竞争，表按关联键拆分为多个分段，每个分段独立加锁。
+ */
+public class PendingSendTable {
+
+    /**
+     * 空槽位标记，关联键为0时会被替换为1
+     */
+    private static final long EMPTY = 0L;
+
+    /**
+     * 分段数量，必须是2的幂
+     */
+    private static final int SEGMENT_COUNT = 16;
+
+    /**
+     * 分段初始容量，必须是2的幂
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * 登记结果
+     */
+    public enum PutResult {
+
+        /**
+         * 登记成功
+         */
+        ADDED,
+
+        /**
+         * 关联键已存在，保留原记录
+         */
+        DUPLICATE,
+
+        /**
+         * 关联键所在分段已满，未登记
+         */
+        FULL
+    }
+
+    /**
+     * 过期记录回调
+     */
+    public interface ExpiredHandler {
+
+        /**
+         * 记录超时未收到发送结果
+         *
+         * @param cmd 记录的指令类型
+         */
+        void onExpired(int cmd);
+    }
+
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+
+    /**
+     * @param maxPending 最多保存的记录数，超出后新记录不再登记
+     */
+    public PendingSendTable(int maxPending) {
+        int segmentMaxSize = Math.max(1, maxPending / SEGMENT_COUNT);
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(segmentMaxSize);
+        }
+    }
+
+    /**
+     * 登记一条待确认记录
+     *
+     * @param key      关联键
+     * @param cmd      指令类型
+     * @param sendTime 发送时间（纳秒）
+     * @return 登记结果
+     */
+    public PutResult put(long key, int cmd, long sendTime) {
+        key = normalize(key);
+        return segmentFor(key).put(key, EMPTY, cmd, sendTime);
+    }
+
+    /**
+     * 登记一条指向其他记录的别名记录
+     *
+     * @param alias    别名关联键
+     * @param target   被指向记录的关联键
+     * @param sendTime 发送时间（纳秒），与被指向记录相同，用于过期清理
+     * @return 登记结果
+     */
+    public PutResult putAlias(long alias, long target, long sendTime) {
+        alias = normalize(alias);
+        return segmentFor(alias).put(alias, normalize(target), 0, sendTime);
+    }
+
+    /**
+     * 移除一条别名记录
+     *
+     * @param alias 别名关联键
+     * @return 被指向记录的关联键，别名记录不存在时返回0
+     */
+    public long removeAlias(long alias) {
+        alias = normalize(alias);
+        return segmentFor(alias).removeAlias(alias, EMPTY);
+    }
+
+    /**
+     * 别名记录指向指定的记录时移除它，指向其他记录时保留
+     *
+     * @param alias  别名关联键
+     * @param target 被指向记录的关联键
+     * @return 是否移除
+     */
+    public boolean removeAlias(long alias, long target) {
+        alias = normalize(alias);
+        return segmentFor(alias).removeAlias(alias, normalize(target)) != EMPTY;
+    }
+
+    /**
+     * 移除一条待确认记录，不移除别名记录
+     *
+     * @param key 关联键
+     * @return 记录的发送时间（纳秒），不存在时返回-1
+     */
+    public long remove(long key) {
+        key = normalize(key);
+        return segmentFor(key).remove(key);
+    }
+
+    /**
+     * 清理发送时间早于截止时间的记录，只有普通记录会回调
+     *
+     * @param deadline 截止时间（纳秒）
+     * @param handler  过期记录回调
+     */
+    public void expire(long deadline, ExpiredHandler handler) {
+        for (Segment segment : segments) {
+            segment.expire(deadline, handler);
+        }
+    }
+
+    /**
+     * @return 当前记录数
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private static long normalize(long key) {
+        return key == EMPTY ? 1L : key;
+    }
+
+    private Segment segmentFor(long key) {
+        return segments[(int) (key >>> 60) & (SEGMENT_COUNT - 1)];
+    }
+
+    private static int slot(long key, int mask) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    /**
+     * 表分段，保存关联键、别名指向的关联键、发送时间和指令类型四个平行数组
+     */
+    private static final class Segment {
+
+        private final int maxSize;
+
+        private long[] keys = new long[INITIAL_CAPACITY];
+
+        /**
+         * 别名记录指向的关联键，普通记录为EMPTY
+         */
+        private long[] targets = new long[INITIAL_CAPACITY];
+
+        private long[] times = new long[INITIAL_CAPACITY];
+
+        private int[] cmds = new int[INITIAL_CAPACITY];
+
+        private int size;
+
+        Segment(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized PutResult put(long key, long target, int cmd, long sendTime) {
+            if (size >= maxSize) {
+                return PutResult.FULL;
+            }
+            // 负载因子超过0.75时扩容，保证探测时一定能遇到空槽位
+            if ((size + 1) << 2 > keys.length * 3) {
+                rehash(keys.length << 1);
+            }
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (keys[i] != EMPTY) {
+                if (keys[i] == key) {
+                    return PutResult.DUPLICATE;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            targets[i] = target;
+            times[i] = sendTime;
+            cmds[i] = cmd;
+            size++;
+            return PutResult.ADDED;
+        }
+
+        synchronized long remove(long key) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (keys[i] != EMPTY) {
+                if (keys[i] == key) {
+                    if (targets[i] != EMPTY) {
+                        return -1L;
+                    }
+                    long sendTime = times[i];
+                    shiftBack(i);
+                    size--;
+                    return sendTime;
+                }
+                i = (i + 1) & mask;
+            }
+            return -1L;
+        }
+
+        /**
+         * 移除别名记录，expected不为EMPTY时只移除指向它的别名记录
+         *
+         * @return 别名记录指向的关联键，未移除时返回EMPTY
+         */
+        synchronized long removeAlias(long alias, long expected) {
+            int mask = keys.length - 1;
+            int i = slot(alias, mask);
+            while (keys[i] != EMPTY) {
+                if (keys[i] == alias) {
+                    long target = targets[i];
+                    if (target == EMPTY || (expected != EMPTY && target != expected)) {
+                        return EMPTY;
+                    }
+                    shiftBack(i);
+                    size--;
+                    return target;
+                }
+                i = (i + 1) & mask;
+            }
+            return EMPTY;
+        }
+
+        synchronized void expire(long deadline, ExpiredHandler handler) {
+            int expired = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != EMPTY && times[i] - deadline < 0) {
+                    if (targets[i] == EMPTY) {
+                        handler.onExpired(cmds[i]);
+                    }
+                    expired++;
+                }
+            }
+            if (expired == 0) {
+                return;
+            }
+            // 重建数组，只保留未过期的记录
+            long[] oldKeys = keys;
+            long[] oldTargets = targets;
+            long[] oldTimes = times;
+            int[] oldCmds = cmds;
+            keys = new long[oldKeys.length];
+            targets = new long[oldKeys.length];
+            times = new long[oldKeys.length];
+            cmds = new int[oldKeys.length];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY && oldTimes[i] - deadline >= 0) {
+                    insert(oldKeys[i], oldTargets[i], oldCmds[i], oldTimes[i]);
+                }
+            }
+        }
+
+        /**
+         * 删除槽位后，把后续同一探测链上的记录前移，保证查找不会提前遇到空槽位
+         */
+        private void shiftBack(int gap) {
+            int mask = keys.length - 1;
+            int i = gap;
+            while (true) {
+                i = (i + 1) & mask;
+                long key = keys[i];
+                if (key == EMPTY) {
+                    break;
+                }
+                int home = slot(key, mask);
+                // 记录的初始槽位不在(gap, i]区间内时，才能前移到空出的位置
+                boolean movable = gap <= i ? (home <= gap || home > i) : (home <= gap && home > i);
+                if (movable) {
+                    keys[gap] = key;
+                    targets[gap] = targets[i];
+                    times[gap] = times[i];
+                    cmds[gap] = cmds[i];
+                    gap = i;
+                }
+            }
+            keys[gap] = EMPTY;
+        }
+
+        private void rehash(int capacity) {
+            long[] oldKeys = keys;
+            long[] oldTargets = targets;
+            long[] oldTimes = times;
+            int[] oldCmds = cmds;
+            keys = new long[capacity];
+            targets = new long[capacity];
+            times = new long[capacity];
+            cmds = new int[capacity];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    insert(oldKeys[i], oldTargets[i], oldCmds[i], oldTimes[i]);
+                }
+            }
+        }
+
+        private void insert(long key, long target, int cmd, long sendTime) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (keys[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            targets[i] = target;
+            times[i] = sendTime;
+            cmds[i] = cmd;
+            size++;
+        }
+    }
+}
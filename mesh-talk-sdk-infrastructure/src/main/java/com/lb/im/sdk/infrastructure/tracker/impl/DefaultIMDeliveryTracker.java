@@ -0,0 +1,269 @@
+package com.lb.im.sdk.infrastructure.tracker.impl;
+
+import cn.hutool.core.collection.CollectionUtil;
+import com.lb.im.common.domain.enums.IMCmdType;
+import com.lb.im.common.domain.enums.IMListenerType;
+import com.lb.im.common.domain.model.IMSendResult;
+import com.lb.im.common.domain.model.IMUserInfo;
+import com.lb.im.sdk.domain.model.IMStampedReceiveInfo;
+import com.lb.im.sdk.infrastructure.config.IMSdkProperties;
+import com.lb.im.sdk.infrastructure.metrics.IMMetrics;
+import com.lb.im.sdk.infrastructure.tracker.IMDeliveryTracker;
+import com.lb.im.sdk.infrastructure.tracker.PendingSendTable;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 消息投递跟踪器的默认实现
+ * <p>
+ * 设计说明：
+ * 1. 每个接收终端登记一条以(消息ID, 接收者, 接收终端)为关联键的记录，
+ *    再登记一条以(指令类型, 发送者, 发送终端, 接收者, 接收终端)为关联键的别名记录指向它
+ * 2. 结果带回消息ID时按消息ID关联键查找，没有带回时按别名找到同一条记录，
+ *    同一集群中有的服务端带回消息ID、有的不带回时都能关联，不依赖全局的切换开关
+ * 3. 同一发送者发往同一接收终端的别名记录在收到结果前只保留最早的一条，
+ *    之后的消息只能通过消息ID关联
+ * 4. 待确认记录保存在基本类型数组实现的PendingSendTable中，后台线程定时清理过期记录
+ * <p>
+ * 使用限制：结果消费者使用RocketMQ集群消费模式，一条结果只会被同一消费者组中的一个实例消费，
+ * 不一定是发送它的实例。部署N个实例时，本实例只能收到大约1/N的结果：
+ * 1. 本实例找不到登记记录的结果直接忽略
+ * 2. 延迟直方图只统计本实例收到的结果，是所有结果的一个抽样
+ * 3. 过期记录计入unmatched而不是超时：它包括被其他实例消费的结果，只有单实例部署时才等同于丢失或超时
+ * <p>
+ * 发布的指标：
+ * 1. im.sdk.delivery.latency - 按指令类型统计的投递延迟直方图
+ * 2. im.sdk.delivery.unmatched - 按指令类型统计的过期仍未在本实例收到结果的接收者数量
+ * 3. im.sdk.delivery.untracked - 待确认表已满而未能跟踪的接收者数量
+ * 4. im.sdk.delivery.duplicate - 别名关联键已在等待结果，只能按消息ID关联的接收者数量
+ */
+public class DefaultIMDeliveryTracker implements IMDeliveryTracker, InitializingBean, DisposableBean {
+
+    /**
+     * 消息ID中序号部分的位数，高位为实例随机数，降低多个实例之间的ID冲突概率
+     */
+    private static final int SEQUENCE_BITS = 47;
+
+    @Autowired
+    private IMSdkProperties imSdkProperties;
+
+    @Autowired
+    private IMMetrics imMetrics;
+
+    /**
+     * 是否启用投递跟踪，关闭后只分配消息ID和发送时间
+     */
+    private boolean enabled;
+
+    /**
+     * 等待发送结果的超时时间（毫秒）
+     */
+    private long timeoutMillis;
+
+    /**
+     * 待确认表最多保存的记录数
+     */
+    private int maxPending;
+
+    /**
+     * 消息ID的实例随机部分
+     */
+    private final long idPrefix = ((long) new SecureRandom().nextInt(1 << (63 - SEQUENCE_BITS))) << SEQUENCE_BITS;
+
+    /**
+     * 消息ID的序号部分
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * 每种指令类型的延迟直方图
+     */
+    private final Map<Integer, Timer> latencyTimers = new ConcurrentHashMap<>();
+
+    /**
+     * 每种指令类型的过期计数器
+     */
+    private final Map<Integer, Counter> unmatchedCounters = new ConcurrentHashMap<>();
+
+    private PendingSendTable pendingSendTable;
+
+    private Counter untrackedCounter;
+
+    private Counter duplicateCounter;
+
+    private ScheduledExecutorService scheduler;
+
+    @Override
+    public void afterPropertiesSet() {
+        enabled = imSdkProperties.getTracking().isEnabled();
+        timeoutMillis = imSdkProperties.getTracking().getTimeoutMillis();
+        maxPending = imSdkProperties.getTracking().getMaxPending();
+        if (!enabled) {
+            return;
+        }
+        pendingSendTable = new PendingSendTable(maxPending);
+        untrackedCounter = Counter.builder(IMMetrics.PREFIX + "delivery.untracked")
+                .description("待确认表已满而未能跟踪的接收者数量")
+                .register(imMetrics.getRegistry());
+        duplicateCounter = Counter.builder(IMMetrics.PREFIX + "delivery.duplicate")
+                .description("别名关联键已在等待结果，只能按消息ID关联的接收者数量")
+                .register(imMetrics.getRegistry());
+
+        // 后台线程定时清理过期记录，清理间隔为超时时间的十分之一，最少100毫秒
+        long sweepMillis = Math.max(100L, timeoutMillis / 10);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "im-delivery-tracker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::expire, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Override
+    public void track(IMStampedReceiveInfo receiveInfo) {
+        long sendTime = System.nanoTime();
+        receiveInfo.setMessageId(idPrefix | (sequence.incrementAndGet() & ((1L << SEQUENCE_BITS) - 1)));
+        receiveInfo.setSendTime(sendTime);
+
+        // 只有需要回执的信封才会收到发送结果
+        if (pendingSendTable == null
+                || !Boolean.TRUE.equals(receiveInfo.getSendResult())
+                || receiveInfo.getSender() == null
+                || CollectionUtil.isEmpty(receiveInfo.getReceivers())) {
+            return;
+        }
+
+        int cmd = receiveInfo.getCmd();
+        for (IMUserInfo receiver : receiveInfo.getReceivers()) {
+            long key = messageKey(receiveInfo.getMessageId(), receiver);
+            PendingSendTable.PutResult putResult = pendingSendTable.put(key, cmd, sendTime);
+            if (putResult == PendingSendTable.PutResult.FULL) {
+                untrackedCounter.increment();
+                continue;
+            }
+            if (putResult == PendingSendTable.PutResult.DUPLICATE) {
+                duplicateCounter.increment();
+                continue;
+            }
+            // 别名记录用于服务端未带回消息ID的结果，登记失败时仍可按消息ID关联
+            long alias = correlationKey(cmd, receiveInfo.getSender(), receiver);
+            if (pendingSendTable.putAlias(alias, key, sendTime) == PendingSendTable.PutResult.DUPLICATE) {
+                duplicateCounter.increment();
+            }
+        }
+    }
+
+    @Override
+    public void complete(IMListenerType listenerType, IMSendResult<?> result, Long messageId) {
+        if (pendingSendTable == null || result.getSender() == null || result.getReceiver() == null) {
+            return;
+        }
+
+        int cmd = IMListenerType.GROUP_MESSAGE.equals(listenerType)
+                ? IMCmdType.GROUP_MESSAGE.getCode()
+                : IMCmdType.PRIVATE_MESSAGE.getCode();
+        long alias = correlationKey(cmd, result.getSender(), result.getReceiver());
+        long sendTime;
+        if (messageId != null) {
+            long key = messageKey(messageId, result.getReceiver());
+            sendTime = pendingSendTable.remove(key);
+            // 同时移除指向这条记录的别名，指向同一接收终端其他消息的别名保留
+            pendingSendTable.removeAlias(alias, key);
+        } else {
+            // 服务端未带回消息ID，通过别名找到登记记录
+            long key = pendingSendTable.removeAlias(alias);
+            sendTime = key == 0L ? -1L : pendingSendTable.remove(key);
+        }
+        // 结果由其他实例发送，或记录已经过期
+        if (sendTime < 0) {
+            return;
+        }
+        latencyTimer(cmd).record(System.nanoTime() - sendTime, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 清理过期记录并计入unmatched，多实例部署时其中包括被其他实例消费的结果，不能视为超时
+     */
+    private void expire() {
+        long deadline = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        pendingSendTable.expire(deadline, cmd -> unmatchedCounter(cmd).increment());
+    }
+
+    private Timer latencyTimer(int cmd) {
+        return latencyTimers.computeIfAbsent(cmd, c -> Timer.builder(IMMetrics.PREFIX + "delivery.latency")
+                .tag("cmd", cmdName(c))
+                .description("从发送到收到发送结果的端到端延迟")
+                .publishPercentileHistogram()
+                .register(imMetrics.getRegistry()));
+    }
+
+    private Counter unmatchedCounter(int cmd) {
+        return unmatchedCounters.computeIfAbsent(cmd, c -> Counter.builder(IMMetrics.PREFIX + "delivery.unmatched")
+                .tag("cmd", cmdName(c))
+                .description("过期仍未在本实例收到发送结果的接收者数量，多实例部署时包括被其他实例消费的结果")
+                .register(imMetrics.getRegistry()));
+    }
+
+    private static String cmdName(int cmd) {
+        for (IMCmdType cmdType : IMCmdType.values()) {
+            if (cmdType.getCode() == cmd) {
+                return cmdType.name();
+            }
+        }
+        return String.valueOf(cmd);
+    }
+
+    /**
+     * 计算消息ID关联键，同一信封中的每个接收终端各有一个关联键
+     */
+    static long messageKey(long messageId, IMUserInfo receiver) {
+        long h = mix(messageId);
+        h = mix(h ^ nullToZero(receiver.getUserId()));
+        return mix(h ^ nullToZero(receiver.getTerminal()));
+    }
+
+    /**
+     * 计算关联键，发送时与收到结果时使用相同的字段
+     */
+    static long correlationKey(int cmd, IMUserInfo sender, IMUserInfo receiver) {
+        long h = mix(cmd);
+        h = mix(h ^ nullToZero(sender.getUserId()));
+        h = mix(h ^ nullToZero(sender.getTerminal()));
+        h = mix(h ^ nullToZero(receiver.getUserId()));
+        return mix(h ^ nullToZero(receiver.getTerminal()));
+    }
+
+    private static long nullToZero(Number value) {
+        return value == null ? 0L : value.longValue();
+    }
+
+    /**
+     * MurmurHash3的64位混合函数
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
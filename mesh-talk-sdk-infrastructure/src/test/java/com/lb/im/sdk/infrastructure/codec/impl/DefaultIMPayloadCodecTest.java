@@ -0,0 +1,194 @@
+package com.lb.im.sdk.infrastructure.codec.impl;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.lb.im.sdk.domain.model.IMPayload;
+import com.lb.im.sdk.infrastructure.config.IMSdkProperties;
+import com.lb.im.sdk.infrastructure.metrics.IMMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 消息载荷编解码器测试
+ */
+public class DefaultIMPayloadCodecTest {
+
+    private static final String SKIPPED = IMMetrics.PREFIX + "payload.compression.skipped";
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    public void compressesLargePayloadAndDecodesIt() {
+        DefaultIMPayloadCodec codec = this.codec(true, 1024);
+        Map<String, Object> data = new HashMap<>();
+        data.put("text", repeat("hello mesh talk ", 500));
+        data.put("count", 3);
+
+        IMPayload payload = codec.encode(data);
+
+        assertEquals(DefaultIMPayloadCodec.DEFLATE, payload.getCompression());
+        byte[] compressed = (byte[]) payload.getData();
+        assertTrue(compressed.length < JSON.toJSONBytes(data).length);
+
+        JSONObject decoded = (JSONObject) codec.decode(compressed, payload.getCompression());
+        assertEquals(data.get("text"), decoded.getString("text"));
+        assertEquals(3, (int) decoded.getInteger("count"));
+
+        // 经过JSON传输后字节数组变成Base64字符串
+        String transported = Base64.getEncoder().encodeToString(compressed);
+        JSONObject decodedFromBase64 = (JSONObject) codec.decode(transported, payload.getCompression());
+        assertEquals(data.get("text"), decodedFromBase64.getString("text"));
+    }
+
+    @Test
+    public void smallEstimablePayloadIsNotSerialized() {
+        DefaultIMPayloadCodec codec = this.codec(true, 1024);
+        String data = "hello";
+
+        IMPayload payload = codec.encode(data);
+
+        assertSame(data, payload.getData());
+        assertNull(payload.getCompression());
+        assertEquals(1.0, registry.get(SKIPPED).tag("serialized", "false").counter().count(), 0.0);
+        assertEquals(0.0, registry.get(SKIPPED).tag("serialized", "true").counter().count(), 0.0);
+    }
+
+    @Test
+    public void escapedStringIsNotSkippedByEstimate() {
+        // 控制字符序列化后转义为6字节，估算值不能小于实际大小，否则会漏掉超过阈值的载荷
+        DefaultIMPayloadCodec codec = this.codec(true, 100);
+        String data = repeat("\u0001", 20);
+        assertEquals(122, JSON.toJSONBytes(data).length);
+
+        IMPayload payload = codec.encode(data);
+
+        assertEquals(DefaultIMPayloadCodec.DEFLATE, payload.getCompression());
+        assertEquals(data, codec.decode(payload.getData(), payload.getCompression()));
+    }
+
+    @Test
+    public void smallPojoIsSerializedBeforeSkipping() {
+        DefaultIMPayloadCodec codec = this.codec(true, 1024);
+        Message data = new Message();
+        data.setText("hello");
+
+        IMPayload payload = codec.encode(data);
+
+        assertSame(data, payload.getData());
+        assertNull(payload.getCompression());
+        assertEquals(0.0, registry.get(SKIPPED).tag("serialized", "false").counter().count(), 0.0);
+        assertEquals(1.0, registry.get(SKIPPED).tag("serialized", "true").counter().count(), 0.0);
+    }
+
+    @Test
+    public void keepsRawPayloadWhenCompressionDoesNotHelp() {
+        // 3字节的JSON压缩后加上zlib头尾只会更大
+        DefaultIMPayloadCodec codec = this.codec(true, 1);
+        String data = "x";
+
+        IMPayload payload = codec.encode(data);
+
+        assertSame(data, payload.getData());
+        assertNull(payload.getCompression());
+        assertEquals(1L, registry.get(IMMetrics.PREFIX + "payload.compression.ratio").summary().count());
+        assertEquals(1.0, registry.get(IMMetrics.PREFIX + "payload.compression.ratio").summary().mean(), 0.0);
+    }
+
+    @Test
+    public void disabledCodecReturnsRawPayload() {
+        DefaultIMPayloadCodec codec = this.codec(false, 1);
+        String data = repeat("hello mesh talk ", 500);
+
+        IMPayload payload = codec.encode(data);
+
+        assertSame(data, payload.getData());
+        assertNull(payload.getCompression());
+    }
+
+    @Test
+    public void decodeReturnsUncompressedDataAsIs() {
+        DefaultIMPayloadCodec codec = this.codec(true, 1024);
+        Object data = "plain";
+
+        assertSame(data, codec.decode(data, null));
+        assertSame(data, codec.decode(data, "gzip"));
+    }
+
+    @Test
+    public void estimateSizeCoversJsonLikeTypes() {
+        // 字符串按每个字符转义后最多6字节加引号估算，字节数组按Base64估算
+        assertEquals(20L, DefaultIMPayloadCodec.estimateSize("abc", Long.MAX_VALUE));
+        assertEquals(404L, DefaultIMPayloadCodec.estimateSize(new byte[300], Long.MAX_VALUE));
+
+        Map<String, Object> map = new HashMap<>();
+        map.put("a", 1);
+        assertEquals(44L, DefaultIMPayloadCodec.estimateSize(map, Long.MAX_VALUE));
+
+        // 包含普通Java对象时无法估算
+        map.put("message", new Message());
+        assertEquals(-1L, DefaultIMPayloadCodec.estimateSize(map, Long.MAX_VALUE));
+        assertEquals(-1L, DefaultIMPayloadCodec.estimateSize(Collections.singletonList(new Message()), Long.MAX_VALUE));
+    }
+
+    @Test
+    public void estimateSizeStopsAtLimit() {
+        List<Object> data = new ArrayList<>(Collections.nCopies(100000, "0123456789"));
+        // 末尾的元素无法估算，能返回大小说明累计超过上限后没有继续遍历
+        data.add(new Message());
+
+        // 每个元素62字节加1个逗号，第2个元素后超过上限
+        assertEquals(128L, DefaultIMPayloadCodec.estimateSize(data, 100));
+    }
+
+    private DefaultIMPayloadCodec codec(boolean enabled, int thresholdBytes) {
+        IMSdkProperties properties = new IMSdkProperties();
+        properties.getCompression().setEnabled(enabled);
+        properties.getCompression().setThresholdBytes(thresholdBytes);
+        IMMetrics imMetrics = new IMMetrics();
+        ReflectionTestUtils.setField(imMetrics, "meterRegistry", registry);
+
+        DefaultIMPayloadCodec codec = new DefaultIMPayloadCodec();
+        ReflectionTestUtils.setField(codec, "imSdkProperties", properties);
+        ReflectionTestUtils.setField(codec, "imMetrics", imMetrics);
+        codec.afterPropertiesSet();
+        return codec;
+    }
+
+    private static String repeat(String value, int times) {
+        StringBuilder builder = new StringBuilder(value.length() * times);
+        for (int i = 0; i < times; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 普通Java对象载荷
+     */
+    public static class Message {
+
+        private String text;
+
+        public String getText() {
+            return text;
+        }
+
+        public void setText(String text) {
+            this.text = text;
+        }
+    }
+}
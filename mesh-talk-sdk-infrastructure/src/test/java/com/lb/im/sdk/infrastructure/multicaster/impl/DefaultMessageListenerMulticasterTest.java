@@ -0,0 +1,232 @@
+package com.lb.im.sdk.infrastructure.multicaster.impl;
+
+import com.alibaba.fastjson.JSONObject;
+import com.lb.im.common.domain.enums.IMListenerType;
+import com.lb.im.common.domain.model.IMSendResult;
+import com.lb.im.common.domain.model.IMUserInfo;
+import com.lb.im.sdk.domain.annotation.IMListener;
+import com.lb.im.sdk.domain.listener.MessageListener;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 消息监听器多播器测试
+ */
+public class DefaultMessageListenerMulticasterTest {
+
+    private static final IMUserInfo SENDER = new IMUserInfo(1L, 0);
+
+    private static final IMUserInfo RECEIVER = new IMUserInfo(2L, 1);
+
+    @Test
+    public void convertsJsonDataOncePerTargetType() {
+        PayloadListener first = new PayloadListener();
+        PayloadListener second = new PayloadListener();
+        JsonListener json = new JsonListener();
+        DefaultMessageListenerMulticaster multicaster = this.multicaster(first, json, second);
+        JSONObject data = new JSONObject();
+        data.put("text", "hello");
+
+        multicaster.multicast(IMListenerType.PRIVATE_MESSAGE, new IMSendResult<>(SENDER, RECEIVER, 0, data));
+
+        // 同类型的监听器共享同一次转换的结果
+        IMSendResult<?> firstView = first.results.get(0);
+        assertSame(firstView, second.results.get(0));
+        assertTrue(firstView.getData() instanceof Payload);
+        assertEquals("hello", ((Payload) firstView.getData()).getText());
+        // 能直接接收JSON的监听器不做转换
+        IMSendResult<?> jsonView = json.results.get(0);
+        assertNotSame(firstView, jsonView);
+        assertSame(data, jsonView.getData());
+        assertSame(SENDER, jsonView.getSender());
+        assertSame(RECEIVER, jsonView.getReceiver());
+        assertEquals(0, (int) jsonView.getCode());
+    }
+
+    @Test
+    public void nonJsonDataSharesOneView() {
+        PayloadListener payload = new PayloadListener();
+        JsonListener json = new JsonListener();
+        DefaultMessageListenerMulticaster multicaster = this.multicaster(payload, json);
+        IMSendResult<String> result = new IMSendResult<>(SENDER, RECEIVER, 0, "hello");
+
+        multicaster.multicast(IMListenerType.PRIVATE_MESSAGE, result);
+
+        assertSame(payload.results.get(0), json.results.get(0));
+        assertSame("hello", payload.results.get(0).getData());
+        assertNotSame(result, payload.results.get(0));
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void viewsAreReadOnlyAndInputIsUntouched() {
+        PayloadListener payload = new PayloadListener();
+        DefaultMessageListenerMulticaster multicaster = this.multicaster(payload);
+        JSONObject data = new JSONObject();
+        data.put("text", "hello");
+        IMSendResult<JSONObject> result = new IMSendResult<>(SENDER, RECEIVER, 0, data);
+
+        multicaster.multicast(IMListenerType.PRIVATE_MESSAGE, result);
+
+        IMSendResult view = payload.results.get(0);
+        assertThrows(UnsupportedOperationException.class, () -> view.setData(null));
+        assertThrows(UnsupportedOperationException.class, () -> view.setCode(1));
+        assertThrows(UnsupportedOperationException.class, () -> view.setSender(null));
+        assertThrows(UnsupportedOperationException.class, () -> view.setReceiver(null));
+        assertSame(data, result.getData());
+    }
+
+    @Test
+    public void routesByListenerType() {
+        PayloadListener privateListener = new PayloadListener();
+        GroupListener groupListener = new GroupListener();
+        AllListener allListener = new AllListener();
+        DefaultMessageListenerMulticaster multicaster = this.multicaster(privateListener, groupListener, allListener);
+
+        multicaster.multicast(IMListenerType.PRIVATE_MESSAGE, new IMSendResult<>(SENDER, RECEIVER, 0, "private"));
+        multicaster.multicast(IMListenerType.GROUP_MESSAGE, new IMSendResult<>(SENDER, RECEIVER, 0, "group"));
+
+        assertEquals(1, privateListener.results.size());
+        assertEquals("private", privateListener.results.get(0).getData());
+        assertEquals(1, groupListener.results.size());
+        assertEquals("group", groupListener.results.get(0).getData());
+        assertEquals(2, allListener.results.size());
+    }
+
+    @Test
+    public void filtersByCodeAndReceiverTerminal() {
+        CodeListener codeListener = new CodeListener();
+        ReceiverTerminalListener receiverListener = new ReceiverTerminalListener();
+        CodeAndReceiverListener combinedListener = new CodeAndReceiverListener();
+        AllListener allListener = new AllListener();
+        DefaultMessageListenerMulticaster multicaster = this.multicaster(codeListener, receiverListener, combinedListener, allListener);
+        IMUserInfo receiverTerminal0 = new IMUserInfo(2L, 0);
+
+        multicaster.multicast(IMListenerType.PRIVATE_MESSAGE, new IMSendResult<>(SENDER, RECEIVER, 1, "code"));
+        multicaster.multicast(IMListenerType.PRIVATE_MESSAGE, new IMSendResult<>(SENDER, receiverTerminal0, 0, "terminal"));
+        multicaster.multicast(IMListenerType.PRIVATE_MESSAGE, new IMSendResult<>(SENDER, receiverTerminal0, 1, "both"));
+
+        assertEquals(Arrays.asList("code", "both"), data(codeListener));
+        assertEquals(Arrays.asList("terminal", "both"), data(receiverListener));
+        // 同时声明的条件需要全部满足
+        assertEquals(Collections.singletonList("both"), data(combinedListener));
+        // 没有声明条件的监听器接收所有结果
+        assertEquals(Arrays.asList("code", "terminal", "both"), data(allListener));
+    }
+
+    @Test
+    public void hasListenersHonoursFilters() {
+        CodeListener codeListener = new CodeListener();
+        DefaultMessageListenerMulticaster multicaster = this.multicaster(codeListener);
+
+        assertTrue(multicaster.hasListeners(IMListenerType.PRIVATE_MESSAGE, new IMSendResult<>(SENDER, RECEIVER, 1, "a")));
+        assertFalse(multicaster.hasListeners(IMListenerType.PRIVATE_MESSAGE, new IMSendResult<>(SENDER, RECEIVER, 0, "b")));
+        assertFalse(multicaster.hasListeners(IMListenerType.GROUP_MESSAGE, new IMSendResult<>(SENDER, RECEIVER, 1, "c")));
+
+        multicaster.multicast(IMListenerType.PRIVATE_MESSAGE, new IMSendResult<>(SENDER, RECEIVER, 0, "b"));
+        assertTrue(codeListener.results.isEmpty());
+    }
+
+    @Test
+    public void filtersMissingAndOutOfRangeValuesConsistently() {
+        CodeListener codeListener = new CodeListener();
+        ReceiverTerminalListener receiverListener = new ReceiverTerminalListener();
+        DefaultMessageListenerMulticaster multicaster = this.multicaster(codeListener, receiverListener);
+        IMUserInfo receiverTerminal0 = new IMUserInfo(2L, 0);
+
+        // 重复发送相同条件的结果，第二轮命中缓存的路由，超出范围的状态码每次重新筛选
+        for (int round = 0; round < 2; round++) {
+            // 没有接收者时不满足接收者终端条件
+            multicaster.multicast(IMListenerType.PRIVATE_MESSAGE, new IMSendResult<>(SENDER, null, 1, "no-receiver"));
+            multicaster.multicast(IMListenerType.PRIVATE_MESSAGE, new IMSendResult<>(SENDER, receiverTerminal0, -5, "negative-code"));
+            multicaster.multicast(IMListenerType.PRIVATE_MESSAGE, new IMSendResult<>(SENDER, receiverTerminal0, null, "no-code"));
+        }
+
+        assertEquals(Arrays.asList("no-receiver", "no-receiver"), data(codeListener));
+        assertEquals(Arrays.asList("negative-code", "no-code", "negative-code", "no-code"), data(receiverListener));
+    }
+
+    private DefaultMessageListenerMulticaster multicaster(MessageListener<?>... listeners) {
+        DefaultMessageListenerMulticaster multicaster = new DefaultMessageListenerMulticaster();
+        ReflectionTestUtils.setField(multicaster, "messageListenerList", Arrays.asList(listeners));
+        multicaster.afterPropertiesSet();
+        return multicaster;
+    }
+
+    private static List<Object> data(RecordingListener<?> listener) {
+        List<Object> data = new ArrayList<>();
+        for (IMSendResult<?> result : listener.results) {
+            data.add(result.getData());
+        }
+        return data;
+    }
+
+    /**
+     * 记录收到的发送结果
+     */
+    private abstract static class RecordingListener<T> implements MessageListener<T> {
+
+        final List<IMSendResult<?>> results = new ArrayList<>();
+
+        @Override
+        public void doProcess(IMSendResult<T> result) {
+            results.add(result);
+        }
+    }
+
+    @IMListener(listenerType = IMListenerType.PRIVATE_MESSAGE)
+    private static class PayloadListener extends RecordingListener<Payload> {
+    }
+
+    @IMListener(listenerType = IMListenerType.PRIVATE_MESSAGE)
+    private static class JsonListener extends RecordingListener<JSONObject> {
+    }
+
+    @IMListener(listenerType = IMListenerType.GROUP_MESSAGE)
+    private static class GroupListener extends RecordingListener<Object> {
+    }
+
+    @IMListener(listenerType = IMListenerType.ALL)
+    private static class AllListener extends RecordingListener<Object> {
+    }
+
+    @IMListener(listenerType = IMListenerType.PRIVATE_MESSAGE, codes = {1})
+    private static class CodeListener extends RecordingListener<Object> {
+    }
+
+    @IMListener(listenerType = IMListenerType.PRIVATE_MESSAGE, receiverTerminals = {0})
+    private static class ReceiverTerminalListener extends RecordingListener<Object> {
+    }
+
+    @IMListener(listenerType = IMListenerType.PRIVATE_MESSAGE, codes = {1}, receiverTerminals = {0})
+    private static class CodeAndReceiverListener extends RecordingListener<Object> {
+    }
+
+    /**
+     * 监听器的消息内容类型
+     */
+    public static class Payload {
+
+        private String text;
+
+        public String getText() {
+            return text;
+        }
+
+        public void setText(String text) {
+            this.text = text;
+        }
+    }
+}
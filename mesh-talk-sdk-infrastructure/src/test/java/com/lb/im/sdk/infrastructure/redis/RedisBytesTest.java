@@ -0,0 +1,57 @@
+package com.lb.im.sdk.infrastructure.redis;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Redis字节数据工具类测试
+ */
+public class RedisBytesTest {
+
+    @Test
+    public void writeDecimalMatchesLongToString() {
+        long[] values = {0L, 7L, -7L, 10L, 1234567890123L, -1000000L, Long.MAX_VALUE, Long.MIN_VALUE};
+        for (long value : values) {
+            byte[] buffer = new byte[32];
+            int end = RedisBytes.writeDecimal(buffer, 0, value);
+            assertEquals(Long.toString(value), new String(buffer, 0, end, StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Test
+    public void writeDecimalStartsAtPosition() {
+        byte[] buffer = Arrays.copyOf(bytes("key:"), 32);
+
+        int end = RedisBytes.writeDecimal(buffer, 4, 42L);
+
+        assertEquals(6, end);
+        assertEquals("key:42", new String(buffer, 0, end, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void parseIntAcceptsPlainAndQuotedNumbers() {
+        assertEquals(42, RedisBytes.parseInt(bytes("42")));
+        assertEquals(42, RedisBytes.parseInt(bytes("\"42\"")));
+        assertEquals(7, RedisBytes.parseInt(bytes(" 7")));
+        assertEquals(0, RedisBytes.parseInt(bytes("0")));
+        // 遇到非数字字符时停止
+        assertEquals(12, RedisBytes.parseInt(bytes("12abc")));
+    }
+
+    @Test
+    public void parseIntRejectsMissingOrInvalidValues() {
+        assertEquals(RedisBytes.NOT_A_NUMBER, RedisBytes.parseInt(null));
+        assertEquals(RedisBytes.NOT_A_NUMBER, RedisBytes.parseInt(bytes("")));
+        assertEquals(RedisBytes.NOT_A_NUMBER, RedisBytes.parseInt(bytes("\"\"")));
+        assertEquals(RedisBytes.NOT_A_NUMBER, RedisBytes.parseInt(bytes("abc")));
+        assertEquals(RedisBytes.NOT_A_NUMBER, RedisBytes.parseInt(bytes("-1")));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,324 @@
+package com.lb.im.sdk.infrastructure.route.impl;
+
+import com.lb.im.common.domain.constans.IMConstants;
+import com.lb.im.sdk.infrastructure.config.IMSdkProperties;
+import com.lb.im.sdk.infrastructure.route.IMRouteRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * 用户路由数据访问测试
+ * <p>
+ * Redis的字符串命令由内存中的键值表模拟，同时记录每条MGET查询的键。
+ * 集群模式下槽位0-8191和8192-16383分别属于两个主节点，流水线按线程记录，关闭时一次返回期间所有MGET的结果。
+ */
+public class RedisIMRouteRepositoryTest {
+
+    private final Map<String, byte[]> values = new ConcurrentHashMap<>();
+
+    private final Queue<List<String>> mGetCalls = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 每次关闭流水线时一次返回的MGET
+     */
+    private final Queue<List<List<String>>> pipelineFlushes = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 当前线程打开的流水线中排队的MGET，未打开时为空
+     */
+    private final ThreadLocal<List<List<String>>> pipeline = new ThreadLocal<>();
+
+    private final RedisClusterNode firstNode = new RedisClusterNode("127.0.0.1", 7000);
+
+    private final RedisClusterNode secondNode = new RedisClusterNode("127.0.0.1", 7001);
+
+    /**
+     * 查询第二个节点上的键时是否失败
+     */
+    private volatile boolean secondNodeDown;
+
+    /**
+     * 集群连接是否不支持流水线
+     */
+    private volatile boolean pipelineUnsupported;
+
+    private final RedisConnectionFactory redisConnectionFactory = mock(RedisConnectionFactory.class);
+
+    private final RedisIMRouteRepository repository = new RedisIMRouteRepository();
+
+    @AfterEach
+    public void tearDown() {
+        repository.destroy();
+    }
+
+    @Test
+    public void encodesKeyLikeStringJoin() {
+        assertEquals(key(123L, 2), decode(RedisIMRouteRepository.encodeKey(123L, 2)));
+        assertEquals(key(Long.MAX_VALUE, 0), decode(RedisIMRouteRepository.encodeKey(Long.MAX_VALUE, 0)));
+        assertEquals(key(-5L, 1), decode(RedisIMRouteRepository.encodeKey(-5L, 1)));
+        // 缓冲区按线程复用，短键不能带上前一个长键的残留字节
+        assertEquals(key(7L, 3), decode(RedisIMRouteRepository.encodeKey(7L, 3)));
+    }
+
+    @Test
+    public void getServerIdParsesSingleValue() {
+        this.useConnection(mock(RedisConnection.class));
+        values.put(key(1L, 0), "3".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(3, repository.getServerId(1L, 0));
+        assertEquals(IMRouteRepository.NOT_ONLINE, repository.getServerId(1L, 1));
+    }
+
+    @Test
+    public void getServerIdsUsesOneMGet() {
+        this.useConnection(mock(RedisConnection.class));
+        values.put(key(1L, 0), "3".getBytes(StandardCharsets.UTF_8));
+        // FastJson序列化器写入的带引号形式
+        values.put(key(2L, 0), "\"4\"".getBytes(StandardCharsets.UTF_8));
+
+        int[] serverIds = repository.getServerIds(new long[]{1L, 2L, 3L}, new int[]{0, 0, 0});
+
+        assertArrayEquals(new int[]{3, 4, IMRouteRepository.NOT_ONLINE}, serverIds);
+        assertEquals(1, mGetCalls.size());
+    }
+
+    @Test
+    public void emptyQueryDoesNotTouchRedis() {
+        ReflectionTestUtils.setField(repository, "redisConnectionFactory", redisConnectionFactory);
+
+        assertEquals(0, repository.getServerIds(new long[0], new int[0]).length);
+        verifyNoInteractions(redisConnectionFactory);
+    }
+
+    @Test
+    public void clusterLookupPipelinesOneMGetPerSlotPerNode() {
+        this.useCluster();
+        int size = 300;
+        long[] userIds = new long[size];
+        int[] terminals = new int[size];
+        int[] expected = new int[size];
+        Set<Integer> expectedSlots = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            userIds[i] = i + 1;
+            terminals[i] = i % 3;
+            expected[i] = i % 7 == 0 ? IMRouteRepository.NOT_ONLINE : i % 50;
+            if (expected[i] != IMRouteRepository.NOT_ONLINE) {
+                values.put(key(userIds[i], terminals[i]), String.valueOf(expected[i]).getBytes(StandardCharsets.UTF_8));
+            }
+            expectedSlots.add(ClusterSlotHashUtil.calculateSlot(key(userIds[i], terminals[i])));
+        }
+
+        int[] serverIds = repository.getServerIds(userIds, terminals);
+
+        // 结果按入参下标写回
+        assertArrayEquals(expected, serverIds);
+        // 每条MGET只包含同一槽位的键，每个槽位只查询一次
+        Set<Integer> slots = new HashSet<>();
+        for (List<String> call : mGetCalls) {
+            int slot = ClusterSlotHashUtil.calculateSlot(call.get(0));
+            for (String key : call) {
+                assertEquals(slot, ClusterSlotHashUtil.calculateSlot(key));
+            }
+            assertTrue(slots.add(slot), "slot queried twice:" + slot);
+        }
+        assertEquals(expectedSlots, slots);
+        // 每个节点一次流水线往返，流水线中只有该节点上的槽位
+        assertEquals(2, pipelineFlushes.size());
+        Set<RedisClusterNode> flushedNodes = new HashSet<>();
+        int pipelined = 0;
+        for (List<List<String>> flush : pipelineFlushes) {
+            RedisClusterNode node = this.nodeForKey(flush.get(0).get(0));
+            for (List<String> call : flush) {
+                assertEquals(node, this.nodeForKey(call.get(0)));
+            }
+            assertTrue(flushedNodes.add(node));
+            pipelined += flush.size();
+        }
+        assertEquals(mGetCalls.size(), pipelined);
+    }
+
+    @Test
+    public void clusterLookupInSingleSlotUsesPlainMGet() {
+        RedisClusterConnection connection = this.useCluster();
+        values.put(key(1L, 0), "3".getBytes(StandardCharsets.UTF_8));
+
+        assertArrayEquals(new int[]{3}, repository.getServerIds(new long[]{1L}, new int[]{0}));
+        assertEquals(1, mGetCalls.size());
+        assertTrue(pipelineFlushes.isEmpty());
+        verify(connection, never()).clusterGetNodeForSlot(anyInt());
+    }
+
+    @Test
+    public void clusterLookupFallsBackWithoutPipelineSupport() {
+        this.useCluster();
+        pipelineUnsupported = true;
+        int size = 300;
+        long[] userIds = new long[size];
+        int[] expected = new int[size];
+        for (int i = 0; i < size; i++) {
+            userIds[i] = i + 1;
+            expected[i] = i % 50;
+            values.put(key(userIds[i], 0), String.valueOf(expected[i]).getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertArrayEquals(expected, repository.getServerIds(userIds, new int[size]));
+        assertTrue(pipelineFlushes.isEmpty());
+    }
+
+    @Test
+    public void clusterLookupPropagatesNodeFailure() {
+        this.useCluster();
+        secondNodeDown = true;
+        int size = 300;
+        long[] userIds = new long[size];
+        for (int i = 0; i < size; i++) {
+            userIds[i] = i + 1;
+        }
+
+        assertThrows(IllegalStateException.class, () -> repository.getServerIds(userIds, new int[size]));
+    }
+
+    /**
+     * 使用集群连接，调用线程和并行查询的线程共用同一个模拟连接
+     */
+    private RedisClusterConnection useCluster() {
+        RedisClusterConnection connection = mock(RedisClusterConnection.class, this::clusterAnswer);
+        when(redisConnectionFactory.getClusterConnection()).thenReturn(connection);
+        this.useConnection(connection);
+        return connection;
+    }
+
+    /**
+     * 集群连接的槽位查询和流水线
+     */
+    private Object clusterAnswer(InvocationOnMock invocation) throws Throwable {
+        switch (invocation.getMethod().getName()) {
+            case "clusterGetNodeForSlot":
+                return this.nodeForSlot(invocation.<Integer>getArgument(0));
+            case "openPipeline":
+                if (pipelineUnsupported) {
+                    throw new UnsupportedOperationException("pipeline is not supported");
+                }
+                pipeline.set(new ArrayList<>());
+                return null;
+            case "closePipeline":
+                List<List<String>> queued = pipeline.get();
+                pipeline.remove();
+                pipelineFlushes.add(queued);
+                List<Object> results = new ArrayList<>(queued.size());
+                for (List<String> keys : queued) {
+                    if (secondNodeDown && this.nodeForKey(keys.get(0)) == secondNode) {
+                        throw new IllegalStateException("node down");
+                    }
+                    results.add(this.values(keys));
+                }
+                return results;
+            default:
+                return Mockito.RETURNS_DEFAULTS.answer(invocation);
+        }
+    }
+
+    private RedisClusterNode nodeForSlot(int slot) {
+        return slot < 8192 ? firstNode : secondNode;
+    }
+
+    private RedisClusterNode nodeForKey(String key) {
+        return this.nodeForSlot(ClusterSlotHashUtil.calculateSlot(key));
+    }
+
+    /**
+     * 注入依赖，并让连接工厂返回指定的连接
+     */
+    private void useConnection(RedisConnection connection) {
+        RedisStringCommands stringCommands = this.stringCommands();
+        when(connection.stringCommands()).thenReturn(stringCommands);
+        when(redisConnectionFactory.getConnection()).thenReturn(connection);
+        ReflectionTestUtils.setField(repository, "redisConnectionFactory", redisConnectionFactory);
+        ReflectionTestUtils.setField(repository, "imSdkProperties", new IMSdkProperties());
+        repository.afterPropertiesSet();
+    }
+
+    /**
+     * 从内存键值表读取的字符串命令
+     */
+    private RedisStringCommands stringCommands() {
+        return mock(RedisStringCommands.class, this::answer);
+    }
+
+    private Object answer(InvocationOnMock invocation) throws Throwable {
+        List<String> keys = new ArrayList<>();
+        for (Object argument : invocation.getArguments()) {
+            // 兼容可变参数展开和未展开两种形式
+            if (argument instanceof byte[][]) {
+                for (byte[] key : (byte[][]) argument) {
+                    keys.add(decode(key));
+                }
+            } else if (argument instanceof byte[]) {
+                keys.add(decode((byte[]) argument));
+            }
+        }
+        switch (invocation.getMethod().getName()) {
+            case "get":
+                return values.get(keys.get(0));
+            case "mGet":
+                mGetCalls.add(keys);
+                // 流水线中的命令只排队，结果在关闭流水线时返回
+                if (pipeline.get() != null) {
+                    pipeline.get().add(keys);
+                    return null;
+                }
+                if (secondNodeDown && this.nodeForKey(keys.get(0)) == secondNode) {
+                    throw new IllegalStateException("node down");
+                }
+                return this.values(keys);
+            default:
+                return Mockito.RETURNS_DEFAULTS.answer(invocation);
+        }
+    }
+
+    private List<byte[]> values(List<String> keys) {
+        List<byte[]> result = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            result.add(values.get(key));
+        }
+        return result;
+    }
+
+    private static String key(long userId, int terminal) {
+        return String.join(IMConstants.REDIS_KEY_SPLIT, IMConstants.IM_USER_SERVER_ID, String.valueOf(userId), String.valueOf(terminal));
+    }
+
+    private static String decode(byte[] key) {
+        return new String(key, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,135 @@
+package com.lb.im.sdk.infrastructure.server.impl;
+
+import com.lb.im.sdk.infrastructure.config.IMSdkProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisServerCommands;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * IM服务端存活视图测试
+ * <p>
+ * 区分"从未见过心跳集合"（视图未知，全部按存活处理）和"心跳全部超时"（视图为空，全部按下线处理）。
+ */
+public class DefaultIMServerRegistryTest {
+
+    private static final long NOW = 100000L;
+
+    private static final long HEARTBEAT_TIMEOUT = 30000L;
+
+    private final RedisConnectionFactory redisConnectionFactory = mock(RedisConnectionFactory.class);
+
+    private final RedisConnection connection = mock(RedisConnection.class);
+
+    private final RedisZSetCommands zSetCommands = mock(RedisZSetCommands.class);
+
+    private final RedisServerCommands serverCommands = mock(RedisServerCommands.class);
+
+    private final DefaultIMServerRegistry registry = new DefaultIMServerRegistry();
+
+    @BeforeEach
+    public void setUp() {
+        when(redisConnectionFactory.getConnection()).thenReturn(connection);
+        when(connection.zSetCommands()).thenReturn(zSetCommands);
+        when(connection.serverCommands()).thenReturn(serverCommands);
+        when(serverCommands.time()).thenReturn(NOW);
+
+        IMSdkProperties properties = new IMSdkProperties();
+        properties.getServer().setHeartbeatTimeoutMillis(HEARTBEAT_TIMEOUT);
+        ReflectionTestUtils.setField(registry, "imSdkProperties", properties);
+        ReflectionTestUtils.setField(registry, "redisConnectionFactory", redisConnectionFactory);
+    }
+
+    @Test
+    public void unknownViewTreatsEveryServerAsAlive() {
+        assertTrue(registry.isAlive(5));
+        assertTrue(registry.getLiveServerIds().isEmpty());
+
+        // 心跳集合不存在
+        when(zSetCommands.zCard(any())).thenReturn(0L);
+        this.refresh();
+
+        assertTrue(registry.isAlive(5));
+        assertTrue(registry.getLiveServerIds().isEmpty());
+    }
+
+    @Test
+    public void publishesServersWithFreshHeartbeats() {
+        when(zSetCommands.zCard(any())).thenReturn(3L);
+        when(zSetCommands.zRangeByScore(any(), anyDouble(), anyDouble())).thenReturn(members("1", "2", "abc"));
+
+        this.refresh();
+
+        verify(zSetCommands).zRangeByScore(any(), eq((double) (NOW - HEARTBEAT_TIMEOUT)), eq(Double.POSITIVE_INFINITY));
+        assertEquals(new HashSet<>(Arrays.asList(1, 2)), registry.getLiveServerIds());
+        assertTrue(registry.isAlive(1));
+        assertTrue(registry.isAlive(2));
+        assertFalse(registry.isAlive(3));
+        assertFalse(registry.isAlive(-1));
+    }
+
+    @Test
+    public void allStaleHeartbeatsPublishEmptyView() {
+        when(zSetCommands.zCard(any())).thenReturn(2L, 2L, 0L);
+        when(zSetCommands.zRangeByScore(any(), anyDouble(), anyDouble()))
+                .thenReturn(members("1"), Collections.<byte[]>emptySet(), Collections.<byte[]>emptySet());
+
+        this.refresh();
+        assertTrue(registry.isAlive(1));
+
+        // 心跳集合还在，但所有成员都已超时
+        this.refresh();
+        assertFalse(registry.isAlive(1));
+        assertFalse(registry.isAlive(2));
+        assertTrue(registry.getLiveServerIds().isEmpty());
+
+        // 见过心跳集合之后，集合被删除也不会退回到未知状态
+        this.refresh();
+        assertFalse(registry.isAlive(1));
+    }
+
+    @Test
+    public void failedRefreshKeepsPreviousView() {
+        when(zSetCommands.zCard(any())).thenReturn(1L);
+        when(zSetCommands.zRangeByScore(any(), anyDouble(), anyDouble())).thenReturn(members("1"));
+        this.refresh();
+
+        when(redisConnectionFactory.getConnection()).thenThrow(new IllegalStateException("connection refused"));
+        this.refresh();
+
+        assertTrue(registry.isAlive(1));
+        assertFalse(registry.isAlive(2));
+    }
+
+    private void refresh() {
+        ReflectionTestUtils.invokeMethod(registry, "refresh");
+    }
+
+    private static Set<byte[]> members(String... serverIds) {
+        Set<byte[]> members = new LinkedHashSet<>();
+        for (String serverId : serverIds) {
+            members.add(serverId.getBytes(StandardCharsets.UTF_8));
+        }
+        return members;
+    }
+}
@@ -0,0 +1,297 @@
+package com.lb.im.sdk.infrastructure.spool.impl;
+
+import com.lb.im.common.domain.enums.IMListenerType;
+import com.lb.im.common.domain.model.IMSendResult;
+import com.lb.im.common.domain.model.IMUserInfo;
+import com.lb.im.sdk.domain.annotation.IMListener;
+import com.lb.im.sdk.domain.listener.MessageListener;
+import com.lb.im.sdk.domain.listener.OfflineMessageSink;
+import com.lb.im.sdk.domain.model.IMOfflineMessage;
+import com.lb.im.sdk.infrastructure.config.IMSdkProperties;
+import com.lb.im.sdk.infrastructure.metrics.IMMetrics;
+import com.lb.im.sdk.infrastructure.multicaster.impl.DefaultMessageListenerMulticaster;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 基于内存映射文件的离线消息暂存测试
+ * <p>
+ * 后台刷盘和回放的间隔设置得足够长，测试期间不会自动执行，由测试直接调用回放。
+ */
+public class MappedIMOfflineSpoolTest {
+
+    private static final int SEGMENT_BYTES = 1024 * 1024;
+
+    @TempDir
+    Path directory;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    /**
+     * 离线消息存储收到的批次
+     */
+    private final List<List<IMOfflineMessage>> batches = new CopyOnWriteArrayList<>();
+
+    /**
+     * 下一次存储是否失败
+     */
+    private volatile boolean failNext;
+
+    private final OfflineMessageSink sink = messages -> {
+        if (failNext) {
+            failNext = false;
+            throw new IllegalStateException("offline store unavailable");
+        }
+        batches.add(new ArrayList<>(messages));
+    };
+
+    private final List<MappedIMOfflineSpool> opened = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        for (MappedIMOfflineSpool spool : opened) {
+            spool.destroy();
+        }
+    }
+
+    @Test
+    public void drainsRecordsInBatchesInOrder() throws Exception {
+        MappedIMOfflineSpool spool = this.open(SEGMENT_BYTES, 4, 2);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(spool.append(IMListenerType.PRIVATE_MESSAGE, result(i)));
+        }
+
+        drain(spool);
+
+        assertEquals(Arrays.asList(2, 2, 1), this.batchSizes());
+        assertEquals(Arrays.asList("message-0", "message-1", "message-2", "message-3", "message-4"), this.drainedData());
+        IMOfflineMessage first = batches.get(0).get(0);
+        assertEquals(IMListenerType.PRIVATE_MESSAGE, first.getListenerType());
+        assertEquals(2L, (long) first.getResult().getReceiver().getUserId());
+        assertTrue(first.getSpoolTime() > 0);
+
+        // 没有新记录时不再调用离线消息存储
+        drain(spool);
+        assertEquals(3, batches.size());
+    }
+
+    @Test
+    public void failedStoreIsRetriedFromSamePosition() throws Exception {
+        MappedIMOfflineSpool spool = this.open(SEGMENT_BYTES, 4, 10);
+        spool.append(IMListenerType.GROUP_MESSAGE, result(0));
+        spool.append(IMListenerType.GROUP_MESSAGE, result(1));
+
+        failNext = true;
+        drain(spool);
+        assertTrue(batches.isEmpty());
+        assertEquals(1.0, registry.get(IMMetrics.PREFIX + "spool.store.failures").counter().count(), 0.0);
+
+        drain(spool);
+        assertEquals(Arrays.asList("message-0", "message-1"), this.drainedData());
+    }
+
+    @Test
+    public void recoversUndrainedRecordsAfterRestart() throws Exception {
+        MappedIMOfflineSpool first = this.open(SEGMENT_BYTES, 4, 10);
+        first.append(IMListenerType.PRIVATE_MESSAGE, result(0));
+        first.append(IMListenerType.PRIVATE_MESSAGE, result(1));
+        drain(first);
+        first.append(IMListenerType.PRIVATE_MESSAGE, result(2));
+        first.append(IMListenerType.PRIVATE_MESSAGE, result(3));
+        this.close(first);
+        batches.clear();
+
+        MappedIMOfflineSpool second = this.open(SEGMENT_BYTES, 4, 10);
+        drain(second);
+
+        // checkpoint之前的记录不再回放，上次运行的段读完后被删除
+        assertEquals(Arrays.asList("message-2", "message-3"), this.drainedData());
+        assertFalse(Files.exists(segmentPath(1)));
+    }
+
+    @Test
+    public void skipsTornTailAfterRestart() throws Exception {
+        MappedIMOfflineSpool first = this.open(SEGMENT_BYTES, 4, 10);
+        first.append(IMListenerType.PRIVATE_MESSAGE, result(0));
+        first.append(IMListenerType.PRIVATE_MESSAGE, result(1));
+        this.close(first);
+
+        // 模拟宕机前第二条记录只有一部分落盘：篡改它的最后一个字节，校验和不再匹配
+        try (RandomAccessFile file = new RandomAccessFile(segmentPath(1).toFile(), "rw")) {
+            int firstLength = file.readInt();
+            long second = 8L + firstLength;
+            file.seek(second);
+            int secondLength = file.readInt();
+            long lastByte = second + 8 + secondLength - 1;
+            file.seek(lastByte);
+            int value = file.read();
+            file.seek(lastByte);
+            file.write(value ^ 0x55);
+        }
+
+        MappedIMOfflineSpool second = this.open(SEGMENT_BYTES, 4, 10);
+        drain(second);
+        assertEquals(Arrays.asList("message-0"), this.drainedData());
+
+        // 跳过损坏的尾部后，新写入的记录正常回放
+        second.append(IMListenerType.PRIVATE_MESSAGE, result(2));
+        drain(second);
+        assertEquals(Arrays.asList("message-0", "message-2"), this.drainedData());
+    }
+
+    @Test
+    public void rejectsAppendsWhenFullAndAcceptsAfterDrain() throws Exception {
+        // 每个段只能放下几条记录，最多两个段
+        MappedIMOfflineSpool spool = this.open(512, 2, 100);
+        int appended = 0;
+        while (appended < 100 && spool.append(IMListenerType.PRIVATE_MESSAGE, result(appended))) {
+            appended++;
+        }
+        assertTrue(appended > 1 && appended < 100, "appended:" + appended);
+        assertEquals(1.0, registry.get(IMMetrics.PREFIX + "spool.rejected").counter().count(), 0.0);
+
+        // 回放完成后删除读完的段，腾出空间
+        drain(spool);
+        assertEquals(appended, this.drainedData().size());
+        assertTrue(spool.append(IMListenerType.PRIVATE_MESSAGE, result(appended)));
+    }
+
+    @Test
+    public void failingListenerDoesNotBlockOrReplayBatch() throws Exception {
+        RecordingListener recording = new RecordingListener();
+        DefaultMessageListenerMulticaster multicaster = new DefaultMessageListenerMulticaster();
+        ReflectionTestUtils.setField(multicaster, "messageListenerList", Arrays.asList(recording, new FailingListener()));
+        multicaster.afterPropertiesSet();
+        MulticastOfflineMessageSink multicastSink = new MulticastOfflineMessageSink();
+        ReflectionTestUtils.setField(multicastSink, "messageListenerMulticaster", multicaster);
+        ReflectionTestUtils.setField(multicastSink, "imMetrics", this.metrics());
+        multicastSink.afterPropertiesSet();
+
+        MappedIMOfflineSpool spool = this.open(SEGMENT_BYTES, 4, 10, multicastSink);
+        for (int i = 0; i < 3; i++) {
+            spool.append(IMListenerType.PRIVATE_MESSAGE, result(i));
+        }
+        drain(spool);
+        drain(spool);
+
+        // 始终失败的监听器不会让这一批重试，其他监听器每条消息只收到一次
+        assertEquals(Arrays.asList("message-0", "message-1", "message-2"), recording.data);
+        assertEquals(3.0, registry.get(IMMetrics.PREFIX + "spool.sink.failures").counter().count(), 0.0);
+        assertEquals(0.0, registry.get(IMMetrics.PREFIX + "spool.store.failures").counter().count(), 0.0);
+
+        // 读取位置已经推进，重启后不再回放
+        this.close(spool);
+        MappedIMOfflineSpool reopened = this.open(SEGMENT_BYTES, 4, 10, multicastSink);
+        drain(reopened);
+        assertEquals(3, recording.data.size());
+    }
+
+    private MappedIMOfflineSpool open(int segmentBytes, int maxSegments, int batchSize) throws IOException {
+        return this.open(segmentBytes, maxSegments, batchSize, sink);
+    }
+
+    private MappedIMOfflineSpool open(int segmentBytes, int maxSegments, int batchSize, OfflineMessageSink offlineMessageSink) throws IOException {
+        IMSdkProperties properties = new IMSdkProperties();
+        IMSdkProperties.Spool spool = properties.getSpool();
+        spool.setEnabled(true);
+        spool.setDirectory(directory.toString());
+        spool.setSegmentBytes(segmentBytes);
+        spool.setMaxSegments(maxSegments);
+        spool.setBatchSize(batchSize);
+        spool.setFlushIntervalMillis(TimeUnit.HOURS.toMillis(1));
+        spool.setDrainIntervalMillis(TimeUnit.HOURS.toMillis(1));
+        spool.setRetryBackoffMillis(0);
+        MappedIMOfflineSpool offlineSpool = new MappedIMOfflineSpool();
+        ReflectionTestUtils.setField(offlineSpool, "imSdkProperties", properties);
+        ReflectionTestUtils.setField(offlineSpool, "offlineMessageSink", offlineMessageSink);
+        ReflectionTestUtils.setField(offlineSpool, "imMetrics", this.metrics());
+        offlineSpool.afterPropertiesSet();
+        opened.add(offlineSpool);
+        return offlineSpool;
+    }
+
+    private IMMetrics metrics() {
+        IMMetrics imMetrics = new IMMetrics();
+        ReflectionTestUtils.setField(imMetrics, "meterRegistry", registry);
+        return imMetrics;
+    }
+
+    private void close(MappedIMOfflineSpool spool) throws Exception {
+        opened.remove(spool);
+        spool.destroy();
+    }
+
+    private Path segmentPath(long seq) {
+        return directory.resolve(String.format("%020d.spool", seq));
+    }
+
+    private List<Integer> batchSizes() {
+        List<Integer> sizes = new ArrayList<>();
+        for (List<IMOfflineMessage> batch : batches) {
+            sizes.add(batch.size());
+        }
+        return sizes;
+    }
+
+    private List<Object> drainedData() {
+        List<Object> data = new ArrayList<>();
+        for (List<IMOfflineMessage> batch : batches) {
+            for (IMOfflineMessage message : batch) {
+                data.add(message.getResult().getData());
+            }
+        }
+        return data;
+    }
+
+    private static void drain(MappedIMOfflineSpool spool) {
+        ReflectionTestUtils.invokeMethod(spool, "drain");
+    }
+
+    private static IMSendResult<String> result(int index) {
+        return new IMSendResult<>(new IMUserInfo(1L, 0), new IMUserInfo(2L, 1), 1, "message-" + index);
+    }
+
+    /**
+     * 记录收到的消息内容
+     */
+    @IMListener(listenerType = IMListenerType.PRIVATE_MESSAGE)
+    private static class RecordingListener implements MessageListener<Object> {
+
+        final List<Object> data = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void doProcess(IMSendResult<Object> result) {
+            data.add(result.getData());
+        }
+    }
+
+    /**
+     * 处理任何消息都失败
+     */
+    @IMListener(listenerType = IMListenerType.PRIVATE_MESSAGE)
+    private static class FailingListener implements MessageListener<Object> {
+
+        @Override
+        public void doProcess(IMSendResult<Object> result) {
+            throw new IllegalStateException("listener failure");
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.lb.im.sdk.infrastructure.tracker;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 待确认发送表测试
+ * <p>
+ * 用低位相同的关联键制造探测链上的冲突，覆盖后移删除和过期重建后查找不中断的情况。
+ */
+public class PendingSendTableTest {
+
+    /**
+     * 同一分段、同一初始槽位（分段初始容量64）的关联键
+     */
+    private static final long[] COLLIDING_KEYS = {1L, 65L, 129L};
+
+    @Test
+    public void putAndRemove() {
+        PendingSendTable table = new PendingSendTable(1024);
+
+        assertEquals(PendingSendTable.PutResult.ADDED, table.put(42L, 1, 100L));
+        assertEquals(1, table.size());
+        assertEquals(100L, table.remove(42L));
+        assertEquals(-1L, table.remove(42L));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    public void duplicateKeepsOriginalRecord() {
+        PendingSendTable table = new PendingSendTable(1024);
+
+        assertEquals(PendingSendTable.PutResult.ADDED, table.put(42L, 1, 100L));
+        assertEquals(PendingSendTable.PutResult.DUPLICATE, table.put(42L, 2, 200L));
+        assertEquals(1, table.size());
+        assertEquals(100L, table.remove(42L));
+    }
+
+    @Test
+    public void zeroKeyIsStoredAsOne() {
+        PendingSendTable table = new PendingSendTable(1024);
+
+        assertEquals(PendingSendTable.PutResult.ADDED, table.put(0L, 1, 100L));
+        assertEquals(PendingSendTable.PutResult.DUPLICATE, table.put(1L, 1, 200L));
+        assertEquals(100L, table.remove(1L));
+    }
+
+    @Test
+    public void fullSegmentRejectsNewKeys() {
+        // 16个分段，每个分段最多1条
+        PendingSendTable table = new PendingSendTable(16);
+
+        assertEquals(PendingSendTable.PutResult.ADDED, table.put(1L, 1, 100L));
+        assertEquals(PendingSendTable.PutResult.FULL, table.put(2L, 1, 100L));
+        // 高4位不同的关联键落在其他分段
+        assertEquals(PendingSendTable.PutResult.ADDED, table.put(1L << 60 | 2L, 1, 100L));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    public void removeShiftsBackCollidingKeys() {
+        PendingSendTable table = new PendingSendTable(1024);
+        for (int i = 0; i < COLLIDING_KEYS.length; i++) {
+            table.put(COLLIDING_KEYS[i], i, 100L + i);
+        }
+
+        // 删除链中间的记录后，链尾的记录仍然能找到
+        assertEquals(101L, table.remove(COLLIDING_KEYS[1]));
+        assertEquals(102L, table.remove(COLLIDING_KEYS[2]));
+        assertEquals(100L, table.remove(COLLIDING_KEYS[0]));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    public void removeShiftsBackAcrossArrayEnd() {
+        PendingSendTable table = new PendingSendTable(1024);
+        // 初始槽位都是63，探测链从数组末尾绕回开头
+        table.put(63L, 0, 100L);
+        table.put(127L, 0, 101L);
+        table.put(191L, 0, 102L);
+        // 初始槽位为0的记录排在绕回的记录之后
+        table.put(64L, 0, 103L);
+
+        assertEquals(100L, table.remove(63L));
+        assertEquals(102L, table.remove(191L));
+        assertEquals(103L, table.remove(64L));
+        assertEquals(101L, table.remove(127L));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    public void randomOperationsMatchHashMap() {
+        PendingSendTable table = new PendingSendTable(100000);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            // 关联键集中在少量槽位上，探测链足够长，也会触发扩容
+            long key = 1 + random.nextInt(200);
+            long sendTime = i + 1;
+            if (random.nextBoolean()) {
+                PendingSendTable.PutResult result = table.put(key, 0, sendTime);
+                if (expected.containsKey(key)) {
+                    assertEquals(PendingSendTable.PutResult.DUPLICATE, result);
+                } else {
+                    assertEquals(PendingSendTable.PutResult.ADDED, result);
+                    expected.put(key, sendTime);
+                }
+            } else {
+                Long removed = expected.remove(key);
+                assertEquals(removed == null ? -1L : removed, table.remove(key));
+            }
+            assertEquals(expected.size(), table.size());
+        }
+        for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+            assertEquals((long) entry.getValue(), table.remove(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void expireRemovesOldRecordsAndKeepsChains() {
+        PendingSendTable table = new PendingSendTable(1024);
+        table.put(COLLIDING_KEYS[0], 100, 10L);
+        table.put(COLLIDING_KEYS[1], 200, 20L);
+        table.put(COLLIDING_KEYS[2], 300, 30L);
+        table.put(1L << 60 | 5L, 500, 5L);
+
+        List<Integer> expiredCmds = new ArrayList<>();
+        table.expire(25L, expiredCmds::add);
+        Collections.sort(expiredCmds);
+
+        assertEquals(Arrays.asList(100, 200, 500), expiredCmds);
+        assertEquals(1, table.size());
+        // 链首的记录过期后，原本排在链尾的记录仍然能找到
+        assertEquals(30L, table.remove(COLLIDING_KEYS[2]));
+        assertEquals(-1L, table.remove(COLLIDING_KEYS[0]));
+    }
+
+    @Test
+    public void aliasResolvesToTarget() {
+        PendingSendTable table = new PendingSendTable(1024);
+        table.put(42L, 1, 100L);
+
+        assertEquals(PendingSendTable.PutResult.ADDED, table.putAlias(7L, 42L, 100L));
+        assertEquals(PendingSendTable.PutResult.DUPLICATE, table.putAlias(7L, 43L, 200L));
+        // 普通记录的移除不会误删别名记录
+        assertEquals(-1L, table.remove(7L));
+        assertEquals(2, table.size());
+
+        assertEquals(42L, table.removeAlias(7L));
+        assertEquals(0L, table.removeAlias(7L));
+        assertEquals(100L, table.remove(42L));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    public void aliasIsRemovedOnlyForItsTarget() {
+        PendingSendTable table = new PendingSendTable(1024);
+        table.put(42L, 1, 100L);
+        table.putAlias(7L, 42L, 100L);
+
+        assertFalse(table.removeAlias(7L, 43L));
+        // 普通记录不能当作别名移除
+        assertEquals(0L, table.removeAlias(42L));
+        assertTrue(table.removeAlias(7L, 42L));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    public void expiredAliasesAreNotReported() {
+        PendingSendTable table = new PendingSendTable(1024);
+        table.put(42L, 1, 10L);
+        table.putAlias(7L, 42L, 10L);
+        table.put(COLLIDING_KEYS[0], 2, 10L);
+        table.putAlias(COLLIDING_KEYS[1], COLLIDING_KEYS[0], 10L);
+        table.put(COLLIDING_KEYS[2], 3, 30L);
+
+        List<Integer> expiredCmds = new ArrayList<>();
+        table.expire(25L, expiredCmds::add);
+        Collections.sort(expiredCmds);
+
+        // 每个接收终端只计一次，别名记录随之清理
+        assertEquals(Arrays.asList(1, 2), expiredCmds);
+        assertEquals(1, table.size());
+        assertEquals(30L, table.remove(COLLIDING_KEYS[2]));
+    }
+}
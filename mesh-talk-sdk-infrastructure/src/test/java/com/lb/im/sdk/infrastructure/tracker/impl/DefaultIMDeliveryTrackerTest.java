@@ -0,0 +1,133 @@
+package com.lb.im.sdk.infrastructure.tracker.impl;
+
+import com.lb.im.common.domain.enums.IMCmdType;
+import com.lb.im.common.domain.enums.IMListenerType;
+import com.lb.im.common.domain.model.IMSendResult;
+import com.lb.im.common.domain.model.IMUserInfo;
+import com.lb.im.sdk.domain.model.IMPayload;
+import com.lb.im.sdk.domain.model.IMStampedReceiveInfo;
+import com.lb.im.sdk.infrastructure.config.IMSdkProperties;
+import com.lb.im.sdk.infrastructure.metrics.IMMetrics;
+import com.lb.im.sdk.infrastructure.tracker.PendingSendTable;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 消息投递跟踪器测试
+ * <p>
+ * 等待时间设置得足够长，后台线程不会在测试期间清理记录，由测试直接调用清理。
+ */
+public class DefaultIMDeliveryTrackerTest {
+
+    private static final IMUserInfo SENDER = new IMUserInfo(1L, 0);
+
+    private static final IMUserInfo RECEIVER = new IMUserInfo(2L, 1);
+
+    private static final IMUserInfo OTHER_RECEIVER = new IMUserInfo(3L, 1);
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private final DefaultIMDeliveryTracker tracker = new DefaultIMDeliveryTracker();
+
+    @BeforeEach
+    public void setUp() {
+        IMSdkProperties properties = new IMSdkProperties();
+        properties.getTracking().setTimeoutMillis(TimeUnit.HOURS.toMillis(1));
+        IMMetrics imMetrics = new IMMetrics();
+        ReflectionTestUtils.setField(imMetrics, "meterRegistry", registry);
+        ReflectionTestUtils.setField(tracker, "imSdkProperties", properties);
+        ReflectionTestUtils.setField(tracker, "imMetrics", imMetrics);
+        tracker.afterPropertiesSet();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        tracker.destroy();
+    }
+
+    @Test
+    public void matchesEchoedAndNonEchoedResultsInMixedFleet() {
+        IMStampedReceiveInfo echoed = this.send(RECEIVER);
+        this.send(OTHER_RECEIVER);
+
+        // 第一个服务端带回消息ID之后，不带回消息ID的服务端的结果仍然能关联
+        tracker.complete(IMListenerType.PRIVATE_MESSAGE, result(RECEIVER), echoed.getMessageId());
+        tracker.complete(IMListenerType.PRIVATE_MESSAGE, result(OTHER_RECEIVER), null);
+        this.send(OTHER_RECEIVER);
+        tracker.complete(IMListenerType.PRIVATE_MESSAGE, result(OTHER_RECEIVER), null);
+
+        assertEquals(3L, this.latencyCount());
+        // 记录和别名记录都已移除
+        assertEquals(0, this.table().size());
+    }
+
+    @Test
+    public void echoedResultsMatchEachInFlightMessage() {
+        IMStampedReceiveInfo first = this.send(RECEIVER);
+        IMStampedReceiveInfo second = this.send(RECEIVER);
+        assertEquals(1.0, this.count("delivery.duplicate"), 0.0);
+
+        tracker.complete(IMListenerType.PRIVATE_MESSAGE, result(RECEIVER), second.getMessageId());
+        tracker.complete(IMListenerType.PRIVATE_MESSAGE, result(RECEIVER), first.getMessageId());
+
+        assertEquals(2L, this.latencyCount());
+        assertEquals(0, this.table().size());
+    }
+
+    @Test
+    public void ignoresResultsOfOtherInstances() {
+        tracker.complete(IMListenerType.PRIVATE_MESSAGE, result(RECEIVER), 12345L);
+        tracker.complete(IMListenerType.PRIVATE_MESSAGE, result(RECEIVER), null);
+
+        assertNull(registry.find(IMMetrics.PREFIX + "delivery.latency").timer());
+    }
+
+    @Test
+    public void countsExpiredReceiversOnceAsUnmatched() {
+        IMStampedReceiveInfo receiveInfo = new IMStampedReceiveInfo(IMCmdType.PRIVATE_MESSAGE.getCode(), SENDER,
+                Arrays.asList(RECEIVER, OTHER_RECEIVER), true, IMPayload.raw("hello"));
+        tracker.track(receiveInfo);
+        assertEquals(4, this.table().size());
+
+        ReflectionTestUtils.setField(tracker, "timeoutMillis", -1L);
+        ReflectionTestUtils.invokeMethod(tracker, "expire");
+
+        assertEquals(2.0, registry.get(IMMetrics.PREFIX + "delivery.unmatched")
+                .tag("cmd", IMCmdType.PRIVATE_MESSAGE.name()).counter().count(), 0.0);
+        assertEquals(0, this.table().size());
+    }
+
+    private IMStampedReceiveInfo send(IMUserInfo receiver) {
+        IMStampedReceiveInfo receiveInfo = new IMStampedReceiveInfo(IMCmdType.PRIVATE_MESSAGE.getCode(), SENDER,
+                Collections.singletonList(receiver), true, IMPayload.raw("hello"));
+        tracker.track(receiveInfo);
+        return receiveInfo;
+    }
+
+    private PendingSendTable table() {
+        return (PendingSendTable) ReflectionTestUtils.getField(tracker, "pendingSendTable");
+    }
+
+    private long latencyCount() {
+        return registry.get(IMMetrics.PREFIX + "delivery.latency").tag("cmd", IMCmdType.PRIVATE_MESSAGE.name()).timer().count();
+    }
+
+    private double count(String name) {
+        return registry.get(IMMetrics.PREFIX + name).counter().count();
+    }
+
+    private static IMSendResult<String> result(IMUserInfo receiver) {
+        return new IMSendResult<>(SENDER, receiver, 0, "hello");
+    }
+}
@@ -3,6 +3,8 @@ package com.lb.im.sdk.interfaces.sender;
 import com.lb.im.common.domain.enums.IMTerminalType;
 import com.lb.im.common.domain.model.IMGroupMessage;
 import com.lb.im.common.domain.model.IMPrivateMessage;
+import com.lb.im.sdk.domain.enums.IMMessagePriority;
+import com.lb.im.sdk.domain.model.IMBroadcastMessage;
 
 import java.util.List;
 import java.util.Map;
@@ -34,6 +36,17 @@ public interface IMSender {
      */
     <T> void sendPrivateMessage(IMPrivateMessage<T> message);
 
+    /**
+     * 按指定优先级发送私聊消息
+     * 
+     * 消息会投递到该优先级对应的独立队列，批量消息不会延迟实时聊天消息。
+     * 
+     * @param message 私聊消息对象，包含发送者、接收者和消息内容等信息
+     * @param priority 消息优先级，为空时按普通优先级处理
+     * @param <T> 消息内容的类型参数
+     */
+    <T> void sendPrivateMessage(IMPrivateMessage<T> message, IMMessagePriority priority);
+
     /**
      * 发送群聊消息
      * 
@@ -48,6 +61,54 @@ public interface IMSender {
      */
     <T> void sendGroupMessage(IMGroupMessage<T> message);
 
+    /**
+     * 按指定优先级发送群聊消息
+     * 
+     * 消息会投递到该优先级对应的独立队列，批量消息不会延迟实时聊天消息。
+     * 
+     * @param message 群聊消息对象，包含发送者、群组ID和消息内容等信息
+     * @param priority 消息优先级，为空时按普通优先级处理
+     * @param <T> 消息内容的类型参数
+     */
+    <T> void sendGroupMessage(IMGroupMessage<T> message, IMMessagePriority priority);
+
+    /**
+     * 按群组ID发送群聊消息
+     * 
+     * 成员数量未达到阈值时与{@link #sendGroupMessage(IMGroupMessage)}一致；
+     * 达到阈值或未传入成员列表时，向每个存活的IM服务端发送一份带群组ID的信封，
+     * 由服务端投递给本机连接的群成员，发送成本与服务端数量成正比，不再与成员数量成正比。
+     * 这种方式不产生逐个成员的发送结果回执。
+     * 
+     * @param groupId 群组ID
+     * @param message 群聊消息对象，包含发送者、群成员和消息内容等信息
+     * @param <T> 消息内容的类型参数
+     */
+    <T> void sendGroupMessage(Long groupId, IMGroupMessage<T> message);
+
+    /**
+     * 按群组ID和指定优先级发送群聊消息
+     * 
+     * @param groupId 群组ID
+     * @param message 群聊消息对象，包含发送者、群成员和消息内容等信息
+     * @param priority 消息优先级，为空时按普通优先级处理
+     * @param <T> 消息内容的类型参数
+     */
+    <T> void sendGroupMessage(Long groupId, IMGroupMessage<T> message, IMMessagePriority priority);
+
+    /**
+     * 向所有在线用户广播消息
+     * 
+     * 向每个存活的IM服务端发送一份广播信封，由服务端投递给本机的在线连接。
+     * 实现需要处理：
+     * - 获取存活的服务端列表
+     * - 携带终端类型和用户ID区间等过滤条件
+     * 
+     * @param message 广播消息对象，包含发送者、过滤条件和消息内容
+     * @param <T> 消息内容的类型参数
+     */
+    <T> void broadcast(IMBroadcastMessage<T> message);
+
     /**
      * 获取在线终端数据
      * 
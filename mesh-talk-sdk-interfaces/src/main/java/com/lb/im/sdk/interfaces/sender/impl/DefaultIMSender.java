@@ -1,8 +1,6 @@
 package com.lb.im.sdk.interfaces.sender.impl;
 
 import cn.hutool.core.collection.CollectionUtil;
-import cn.hutool.core.util.StrUtil;
-import com.lb.im.common.cache.distribute.DistributedCacheService;
 import com.lb.im.common.domain.constans.IMConstants;
 import com.lb.im.common.domain.enums.IMCmdType;
 import com.lb.im.common.domain.enums.IMListenerType;
@@ -10,12 +8,29 @@ import com.lb.im.common.domain.enums.IMSendCode;
 import com.lb.im.common.domain.enums.IMTerminalType;
 import com.lb.im.common.domain.model.*;
 import com.lb.im.common.mq.MessageSenderService;
+import com.lb.im.sdk.domain.constants.IMSdkConstants;
+import com.lb.im.sdk.domain.enums.IMMessagePriority;
+import com.lb.im.sdk.domain.model.IMBroadcastInfo;
+import com.lb.im.sdk.domain.model.IMBroadcastMessage;
+import com.lb.im.sdk.domain.model.IMGroupBroadcastInfo;
+import com.lb.im.sdk.domain.model.IMPayload;
+import com.lb.im.sdk.domain.model.IMStampedReceiveInfo;
+import com.lb.im.sdk.infrastructure.codec.IMPayloadCodec;
+import com.lb.im.sdk.infrastructure.config.IMSdkProperties;
+import com.lb.im.sdk.infrastructure.metrics.IMMetrics;
 import com.lb.im.sdk.infrastructure.multicaster.MessageListenerMulticaster;
+import com.lb.im.sdk.infrastructure.route.IMRouteRepository;
+import com.lb.im.sdk.infrastructure.server.IMServerRegistry;
+import com.lb.im.sdk.infrastructure.spool.IMOfflineSpool;
+import com.lb.im.sdk.infrastructure.tracker.IMDeliveryTracker;
 import com.lb.im.sdk.interfaces.sender.IMSender;
+import io.micrometer.core.instrument.Counter;
 import org.apache.commons.lang3.BooleanUtils;
-import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Service;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.util.CollectionUtils;
 
 import java.util.*;
@@ -31,24 +46,37 @@ import java.util.*;
  * 2. 采用消息队列实现异步通信 - 提高系统吞吐量，降低耦合度
  * 3. 多终端消息同步 - 支持用户在多个设备上接收相同消息
  * 4. 离线用户处理 - 提供离线状态反馈机制
+ * 5. 优先级通道 - 不同优先级的消息投递到各自的队列，批量消息不会拖慢实时聊天
+ * 6. 存活校验 - 路由指向已下线服务端的终端按不在线处理，不向无人消费的队列投递
+ * 7. 离线暂存 - 启用后不在线的发送结果先写入本地日志，发送线程不等待离线存储
+ * 8. 超大群读时扇出 - 按群组ID发送且成员数量超过阈值时，每个服务端只发送一份，由服务端查找本机的群成员
  * <p>
  * 依赖组件：
- * 1. 分布式缓存服务(DistributedCacheService) - 基于Redis实现用户状态和路由信息存储
+ * 1. 用户路由数据访问(IMRouteRepository) - 基于Redis字节连接查询用户终端连接的服务器ID
  * 2. 消息队列服务(MessageSenderService) - 用于异步发送消息到目标服务器
  * 3. 消息监听器多播器(MessageListenerMulticaster) - 用于广播消息发送结果给相关监听器
+ * 4. IM服务端注册表(IMServerRegistry) - 提供存活的服务端列表，用于全员广播和路由存活校验
+ * 5. 消息投递跟踪器(IMDeliveryTracker) - 为信封分配消息ID和发送时间，统计投递延迟
+ * 6. 消息载荷编解码器(IMPayloadCodec) - 每条消息只编码一次载荷，超过阈值时压缩
+ * 7. 离线消息暂存(IMOfflineSpool) - 可选，暂存不在线的发送结果，由后台线程批量交给离线消息存储
  */
-@Service
-public class DefaultIMSender implements IMSender {
+public class DefaultIMSender implements IMSender, InitializingBean {
+
+    // 日志记录器
+    private final Logger logger = LoggerFactory.getLogger(DefaultIMSender.class);
 
     /**
-     * 分布式缓存服务，基于Redis实现
+     * 用户路由数据访问，基于Redis实现
      * 主要用途：
-     * 1. 存储用户终端与服务器的映射关系
+     * 1. 查询用户终端与服务器的映射关系
      * 2. 查询用户在线状态
      * 3. 为消息路由提供服务器ID信息
+     * <p>
+     * 设计说明：键直接编码为字节、值直接从字节解析，不经过字符串拼接和FastJson序列化，
+     * 发送路径上的路由查询几乎不产生临时对象
      */
     @Autowired
-    private DistributedCacheService distributedCacheService;
+    private IMRouteRepository imRouteRepository;
 
     /**
      * 消息发送服务，基于消息队列实现
@@ -69,11 +97,88 @@ public class DefaultIMSender implements IMSender {
      * 2. 特别用于通知消息发送失败或用户不在线等状态
      * <p>
      * 设计说明：使用观察者模式，使得消息发送结果可以被多个组件感知，
-     * 便于上层应用实现更复杂的业务逻辑
+     * 便于上层应用实现更复杂的业务逻辑。延迟注入，第一次需要通知发送结果时才创建
      */
+    @Lazy
     @Autowired
     private MessageListenerMulticaster messageListenerMulticaster;
 
+    /**
+     * IM服务端注册表
+     * 主要用途：
+     * 1. 全员广播时获取所有存活的服务端
+     * 2. 校验路由查询得到的服务端是否存活，存活视图缓存在本地，不增加Redis访问
+     */
+    @Autowired
+    private IMServerRegistry imServerRegistry;
+
+    /**
+     * 消息投递跟踪器
+     * 主要用途：
+     * 1. 为每个发出的信封分配消息ID和发送时间
+     * 2. 登记需要回执的接收者，收到结果时统计端到端投递延迟
+     */
+    @Autowired
+    private IMDeliveryTracker imDeliveryTracker;
+
+    /**
+     * 消息载荷编解码器
+     * 主要用途：
+     * 1. 每条消息只编码一次载荷，发往各服务端和各终端的信封共享同一份数据
+     * 2. 超过阈值的载荷透明压缩，减少序列化和传输的数据量
+     */
+    @Autowired
+    private IMPayloadCodec imPayloadCodec;
+
+    /**
+     * 离线消息暂存，未启用时为空
+     * 主要用途：
+     * 1. 不在线的发送结果只追加到本地日志，不在发送线程上执行监听器
+     * 2. 后台线程批量写入离线消息存储，存储变慢或故障时不影响发送
+     */
+    @Autowired(required = false)
+    private IMOfflineSpool imOfflineSpool;
+
+    @Autowired
+    private IMMetrics imMetrics;
+
+    @Autowired
+    private IMSdkProperties imSdkProperties;
+
+    /**
+     * 路由指向已下线服务端的次数
+     */
+    private Counter deadServerRouteCounter;
+
+    /**
+     * 没有存活服务端而未能发送的消息数
+     */
+    private Counter noLiveServerCounter;
+
+    /**
+     * 按服务端扇出的群聊消息数
+     */
+    private Counter groupFanOutOnReadCounter;
+
+    /**
+     * 改为读时扇出的群成员数量阈值，小于等于0表示不启用
+     */
+    private int fanOutOnReadThreshold;
+
+    @Override
+    public void afterPropertiesSet() {
+        fanOutOnReadThreshold = imSdkProperties.getGroup().getFanOutOnReadThreshold();
+        deadServerRouteCounter = Counter.builder(IMMetrics.PREFIX + "route.dead.server")
+                .description("发送时路由指向已下线服务端、按不在线处理的终端数")
+                .register(imMetrics.getRegistry());
+        noLiveServerCounter = Counter.builder(IMMetrics.PREFIX + "send.no.live.server")
+                .description("没有存活的服务端而未能发送的消息数")
+                .register(imMetrics.getRegistry());
+        groupFanOutOnReadCounter = Counter.builder(IMMetrics.PREFIX + "group.fanout.read")
+                .description("按服务端扇出、由服务端查找群成员的群聊消息数")
+                .register(imMetrics.getRegistry());
+    }
+
     /**
      * 发送私有消息到目标用户及自身其他设备
      * <p>
@@ -86,19 +191,39 @@ public class DefaultIMSender implements IMSender {
      */
     @Override
     public <T> void sendPrivateMessage(IMPrivateMessage<T> message) {
+        this.sendPrivateMessage(message, IMMessagePriority.NORMAL);
+    }
+
+    /**
+     * 按指定优先级发送私有消息
+     * <p>
+     * 与{@link #sendPrivateMessage(IMPrivateMessage)}流程一致，
+     * 区别在于消息投递到该优先级对应的队列：IM_MESSAGE_PRIVATE_QUEUE{优先级后缀}:serverId
+     *
+     * @param message  需要发送的私有消息对象
+     * @param priority 消息优先级，为空时按普通优先级处理
+     */
+    @Override
+    public <T> void sendPrivateMessage(IMPrivateMessage<T> message, IMMessagePriority priority) {
         // 空消息检查，防止NPE
         if (message == null) return;
 
+        // 空优先级按普通优先级处理
+        priority = IMMessagePriority.nullToNormal(priority);
+
         // 获取接收终端类型列表
         List<Integer> receiveDeviceTypes = message.getReceiveTerminals();
 
         // 确保至少有一个接收终端类型
         if (!CollectionUtils.isEmpty(receiveDeviceTypes)) {
+            // 载荷只编码一次，发往目标用户和自己其他终端的信封共享
+            IMPayload payload = imPayloadCodec.encode(message.getData());
+
             // 向目标用户发送消息
-            this.sendPrivateMessageToTargetUsers(message, receiveDeviceTypes);
+            this.sendPrivateMessageToTargetUsers(message, receiveDeviceTypes, payload, priority);
 
             // 消息同步到发送者自己的其他设备
-            this.sendPrivateMessageToSelf(message, receiveDeviceTypes);
+            this.sendPrivateMessageToSelf(message, receiveDeviceTypes, payload, priority);
         }
     }
 
@@ -109,43 +234,40 @@ public class DefaultIMSender implements IMSender {
      * 1. 多终端同步是现代IM系统的基本需求，确保用户在所有设备上看到一致的消息记录
      * 2. 仅在用户明确要求同步时才执行(通过sendToSelf标志控制)
      * 3. 采用与普通消息发送相同的异步队列机制，但标记为非需要回执(setSendResult=false)
+     * 4. 连接在同一服务器上的多个终端合并为一个信封
      *
      * @param message            需要发送的私有消息对象
      * @param receiveDeviceTypes 需要接收消息的设备类型列表
+     * @param payload            编码后的消息载荷
+     * @param priority           消息优先级
      */
-    private <T> void sendPrivateMessageToSelf(IMPrivateMessage<T> message, List<Integer> receiveDeviceTypes) {
+    private <T> void sendPrivateMessageToSelf(IMPrivateMessage<T> message, List<Integer> receiveDeviceTypes, IMPayload payload, IMMessagePriority priority) {
         // 只有当sendToSelf标志为true时才执行同步
         if (BooleanUtils.isTrue(message.getSendToSelf())) {
-            // 遍历所有接收终端类型
-            receiveDeviceTypes.forEach(receiveDeviceType -> {
-                // 构建Redis键，格式：IM_USER_SERVER_ID:userId:terminalType
-                // 这个键用于查询用户特定终端连接的服务器ID
-                String redisKey = String.join(IMConstants.REDIS_KEY_SPLIT, IMConstants.IM_USER_SERVER_ID, message.getSender().getUserId().toString(), receiveDeviceType.toString());
-
-                // 从Redis获取该终端连接的服务器ID
-                String serverId = distributedCacheService.get(redisKey);
-
-                // 只有当服务器ID存在（用户该终端在线）时才发送
-                if (!StringUtils.isEmpty(serverId)) {
-                    // 构建消息队列的目标键，格式：IM_MESSAGE_PRIVATE_QUEUE:serverId
-                    String sendKey = String.join(IMConstants.MESSAGE_KEY_SPLIT, IMConstants.IM_MESSAGE_PRIVATE_QUEUE, serverId);
-
-                    // 创建接收信息对象
-                    // 注意：发送给自己时不需要回执，所以setSendResult=false
-                    IMReceiveInfo imReceivenfo = new IMReceiveInfo(
-                            IMCmdType.PRIVATE_MESSAGE.getCode(),
-                            message.getSender(),
-                            Collections.singletonList(new IMUserInfo(message.getSender().getUserId(), receiveDeviceType)),
-                            false,  // 不需要发送结果回执
-                            message.getData());
-
-                    // 设置消息目标队列
-                    imReceivenfo.setDestination(sendKey);
-
-                    // 通过消息队列异步发送
-                    messageSenderService.send(imReceivenfo);
-                }
-            });
+            // 一次批量查询自己各终端连接的服务器ID，并按服务器分组
+            Map<Integer, List<IMUserInfo>> serverMap = this.groupTerminalsByServer(
+                    message.getSender().getUserId(), receiveDeviceTypes, null);
+
+            // 同一服务器上的多个终端只发送一个信封
+            for (Map.Entry<Integer, List<IMUserInfo>> entry : serverMap.entrySet()) {
+                // 构建消息队列的目标键，格式：IM_MESSAGE_PRIVATE_QUEUE{优先级后缀}:serverId
+                String sendKey = String.join(IMConstants.MESSAGE_KEY_SPLIT, priority.getQueue(IMConstants.IM_MESSAGE_PRIVATE_QUEUE), entry.getKey().toString());
+
+                // 创建接收信息对象，接收者为该服务器上自己的所有终端
+                // 注意：发送给自己时不需要回执，所以setSendResult=false
+                IMStampedReceiveInfo imReceivenfo = new IMStampedReceiveInfo(
+                        IMCmdType.PRIVATE_MESSAGE.getCode(),
+                        message.getSender(),
+                        entry.getValue(),
+                        false,  // 不需要发送结果回执
+                        payload);
+
+                // 设置消息目标队列
+                imReceivenfo.setDestination(sendKey);
+
+                // 分配消息ID和发送时间后通过消息队列异步发送
+                this.publish(imReceivenfo);
+            }
         }
     }
 
@@ -153,56 +275,57 @@ public class DefaultIMSender implements IMSender {
      * 向目标用户发送私有消息
      * <p>
      * 设计说明：
-     * 1. 基于Redis快速查询目标用户的在线状态和所连接的服务器
+     * 1. 基于Redis快速查询目标用户的在线状态和所连接的服务器，多个终端一次批量查询
      * 2. 对在线用户，通过消息队列将消息路由到对应服务器
      * 3. 对离线用户，通过监听器机制通知发送者消息未送达
-     * 4. 支持向用户的多个终端类型发送消息
+     * 4. 支持向用户的多个终端类型发送消息，连接在同一服务器上的多个终端合并为一个信封
      *
      * @param message            需要发送的私有消息对象
      * @param receiveDeviceTypes 需要接收消息的设备类型列表
+     * @param payload            编码后的消息载荷
+     * @param priority           消息优先级
      */
-    private <T> void sendPrivateMessageToTargetUsers(IMPrivateMessage<T> message, List<Integer> receiveDeviceTypes) {
-        // 遍历所有目标终端类型
-        receiveDeviceTypes.forEach(receiveDeviceType -> {
-            // 构建Redis键，查询接收用户特定终端连接的服务器ID
-            String redisKey = String.join(IMConstants.REDIS_KEY_SPLIT, IMConstants.IM_USER_SERVER_ID, message.getReceiveId().toString(), receiveDeviceType.toString());
-
-            // 获取服务器ID
-            String serverId = distributedCacheService.get(redisKey);
-
-            // 如果服务器ID存在，表示用户在线
-            if (!StringUtils.isEmpty(serverId)) {
-                // 构建消息队列目标键
-                String sendKey = String.join(IMConstants.MESSAGE_KEY_SPLIT, IMConstants.IM_MESSAGE_PRIVATE_QUEUE, serverId);
-
-                // 创建消息接收信息对象
-                IMReceiveInfo imReceivenfo = new IMReceiveInfo(
-                        IMCmdType.PRIVATE_MESSAGE.getCode(),
-                        message.getSender(),
-                        Collections.singletonList(new IMUserInfo(message.getReceiveId(), receiveDeviceType)),
-                        message.getSendResult(),  // 是否需要发送结果回执
-                        message.getData());
+    private <T> void sendPrivateMessageToTargetUsers(IMPrivateMessage<T> message, List<Integer> receiveDeviceTypes, IMPayload payload, IMMessagePriority priority) {
+        // 一次批量查询接收用户各终端连接的服务器ID，并按服务器分组，同时收集不在线的终端
+        List<IMUserInfo> offlineUserList = new LinkedList<>();
+        Map<Integer, List<IMUserInfo>> serverMap = this.groupTerminalsByServer(
+                message.getReceiveId(), receiveDeviceTypes, offlineUserList);
 
-                // 设置消息目标队列
-                imReceivenfo.setDestination(sendKey);
+        // 同一服务器上的多个终端只发送一个信封
+        for (Map.Entry<Integer, List<IMUserInfo>> entry : serverMap.entrySet()) {
+            // 构建消息队列目标键
+            String sendKey = String.join(IMConstants.MESSAGE_KEY_SPLIT, priority.getQueue(IMConstants.IM_MESSAGE_PRIVATE_QUEUE), entry.getKey().toString());
 
-                // 通过消息队列异步发送
-                messageSenderService.send(imReceivenfo);
-            }
-            // 用户不在线且需要发送结果回执
-            else if (message.getSendResult()) {
+            // 创建消息接收信息对象，接收者为该服务器上接收用户的所有终端
+            IMStampedReceiveInfo imReceivenfo = new IMStampedReceiveInfo(
+                    IMCmdType.PRIVATE_MESSAGE.getCode(),
+                    message.getSender(),
+                    entry.getValue(),
+                    message.getSendResult(),  // 是否需要发送结果回执
+                    payload);
+
+            // 设置消息目标队列
+            imReceivenfo.setDestination(sendKey);
+
+            // 分配消息ID和发送时间后通过消息队列异步发送
+            this.publish(imReceivenfo);
+        }
+
+        // 用户不在线且需要发送结果回执
+        if (message.getSendResult()) {
+            offlineUserList.forEach(offlineUser -> {
                 // 创建发送结果对象，状态为"用户不在线"
                 IMSendResult<T> result = new IMSendResult<>(
                         message.getSender(),
-                        new IMUserInfo(message.getReceiveId(), receiveDeviceType),
+                        offlineUser,
                         IMSendCode.NOT_ONLINE.getCode(),  // 不在线状态码
                         message.getData());
 
-                // 通过监听器多播器通知消息未送达
+                // 通知消息未送达
                 // 这允许应用程序对未送达消息做进一步处理，如离线存储等
-                messageListenerMulticaster.multicast(IMListenerType.PRIVATE_MESSAGE, result);
-            }
-        });
+                this.notifyOffline(IMListenerType.PRIVATE_MESSAGE, result);
+            });
+        }
     }
 
     /**
@@ -218,20 +341,47 @@ public class DefaultIMSender implements IMSender {
      */
     @Override
     public <T> void sendGroupMessage(IMGroupMessage<T> message) {
-        // 获取用户-终端分组映射，用于批量查询在线状态
-        Map<String, IMUserInfo> userTerminalGroup = this.getUserTerminalGroup(message);
+        this.sendGroupMessage(message, IMMessagePriority.NORMAL);
+    }
 
-        // 如果分组数据为空，直接返回
-        if (CollectionUtil.isEmpty(userTerminalGroup)) {
+    /**
+     * 按指定优先级发送群聊消息
+     * <p>
+     * 与{@link #sendGroupMessage(IMGroupMessage)}流程一致，
+     * 区别在于消息投递到该优先级对应的队列：IM_MESSAGE_GROUP_QUEUE{优先级后缀}:serverId
+     *
+     * @param message  群组消息对象
+     * @param priority 消息优先级，为空时按普通优先级处理
+     */
+    @Override
+    public <T> void sendGroupMessage(IMGroupMessage<T> message, IMMessagePriority priority) {
+        // 空优先级按普通优先级处理
+        priority = IMMessagePriority.nullToNormal(priority);
+
+        // 接收用户或接收终端为空，直接返回
+        if (message == null
+                || CollectionUtil.isEmpty(message.getReceiveIds())
+                || CollectionUtil.isEmpty(message.getReceiveTerminals())) {
             return;
         }
 
+        // 接收用户和接收终端去重后两两组合，用于批量查询在线状态
+        Set<Long> receiveIds = new LinkedHashSet<>(message.getReceiveIds());
+        Set<Integer> receiveTerminals = new LinkedHashSet<>(message.getReceiveTerminals());
+        int size = receiveIds.size() * receiveTerminals.size();
+        long[] userIds = new long[size];
+        int[] terminals = new int[size];
+        int idx = 0;
+        for (Integer terminal : receiveTerminals) {
+            for (Long receiveId : receiveIds) {
+                userIds[idx] = receiveId;
+                terminals[idx++] = terminal;
+            }
+        }
+
         // 从Redis批量获取服务器ID信息，提高查询效率
         // 这比循环单个查询Redis性能要好得多
-        List<String> serverIdList = distributedCacheService.multiGet(userTerminalGroup.keySet());
-        if (CollectionUtil.isEmpty(serverIdList)) {
-            return;
-        }
+        int[] serverIds = imRouteRepository.getServerIds(userIds, terminals);
 
         // 将接收方按照服务ID进行分组，便于批量发送
         // 键为服务器ID，值为接收消息的用户列表
@@ -240,27 +390,125 @@ public class DefaultIMSender implements IMSender {
         // 离线用户列表，用于后续发送离线通知
         List<IMUserInfo> offlineUserList = new LinkedList<>();
 
-        // 遍历用户终端映射，根据服务器ID进行分组
-        int idx = 0;
-        for (Map.Entry<String, IMUserInfo> entry : userTerminalGroup.entrySet()) {
-            String serverIdStr = serverIdList.get(idx++);
-            if (!StringUtils.isEmpty(serverIdStr)) {
+        // 遍历查询结果，根据服务器ID进行分组
+        for (int i = 0; i < size; i++) {
+            IMUserInfo userInfo = new IMUserInfo(userIds[i], terminals[i]);
+            if (this.isRoutable(serverIds[i], true)) {
                 // 用户在线，加入对应服务器的用户列表
                 List<IMUserInfo> list = serverMap.computeIfAbsent(
-                        Integer.parseInt(serverIdStr),
+                        serverIds[i],
                         o -> new LinkedList<>());
-                list.add(entry.getValue());
+                list.add(userInfo);
             } else {
                 // 用户不在线，加入离线用户列表
-                offlineUserList.add(entry.getValue());
+                offlineUserList.add(userInfo);
             }
         }
 
+        // 载荷只编码一次，发往各服务端和自己其他终端的信封共享
+        IMPayload payload = imPayloadCodec.encode(message.getData());
+
         // 向群组其他成员发送消息
-        this.sendGroupMessageToOtherUsers(serverMap, offlineUserList, message);
+        this.sendGroupMessageToOtherUsers(serverMap, offlineUserList, message, payload, priority);
 
         // 向发送者自己的其他终端同步消息
-        this.sendGroupMessageToSelf(message);
+        this.sendGroupMessageToSelf(message, payload, priority);
+    }
+
+    /**
+     * 按群组ID发送群聊消息
+     *
+     * @param groupId 群组ID
+     * @param message 群组消息对象
+     */
+    @Override
+    public <T> void sendGroupMessage(Long groupId, IMGroupMessage<T> message) {
+        this.sendGroupMessage(groupId, message, IMMessagePriority.NORMAL);
+    }
+
+    /**
+     * 按群组ID和指定优先级发送群聊消息
+     * <p>
+     * 设计说明：
+     * 1. 成员数量未达到阈值时按成员查询路由发送，与{@link #sendGroupMessage(IMGroupMessage, IMMessagePriority)}一致
+     * 2. 达到阈值或未传入成员列表时不查询成员路由，向每个存活的服务端发送一份带群组ID的信封，
+     *    由服务端投递给本机连接的群成员，发送成本与服务端数量成正比，不再与成员数量成正比
+     * 3. 读时扇出无法得知每个成员是否在线，不产生发送结果回执，消息上的sendResult=true会被忽略
+     * 4. 自己的其他终端仍然按路由同步，服务端投递时跳过发送者
+     * 5. 没有存活的服务端时，传入了成员列表的退回按成员查询路由发送，否则记录日志和指标后放弃
+     *
+     * @param groupId  群组ID
+     * @param message  群组消息对象
+     * @param priority 消息优先级，为空时按普通优先级处理
+     */
+    @Override
+    public <T> void sendGroupMessage(Long groupId, IMGroupMessage<T> message, IMMessagePriority priority) {
+        // 空消息检查，防止NPE
+        if (message == null) return;
+
+        // 成员数量未达到阈值，按成员查询路由发送
+        if (groupId == null || !this.isFanOutOnRead(message.getReceiveIds())) {
+            this.sendGroupMessage(message, priority);
+            return;
+        }
+
+        // 没有存活的服务端时无法按服务端扇出
+        Set<Integer> serverIds = imServerRegistry.getLiveServerIds();
+        if (serverIds.isEmpty()) {
+            if (CollectionUtil.isNotEmpty(message.getReceiveIds())) {
+                logger.warn("DefaultIMSender.sendGroupMessage|没有存活的IM服务端，退回按成员发送, groupId:{}", groupId);
+                this.sendGroupMessage(message, priority);
+                return;
+            }
+            noLiveServerCounter.increment();
+            logger.warn("DefaultIMSender.sendGroupMessage|没有存活的IM服务端，群聊消息未发送, groupId:{}, sender:{}", groupId, message.getSender());
+            return;
+        }
+
+        // 空优先级按普通优先级处理
+        priority = IMMessagePriority.nullToNormal(priority);
+
+        // 载荷只编码一次，发往各服务端和自己其他终端的信封共享
+        IMPayload payload = imPayloadCodec.encode(message.getData());
+
+        // 向每个存活的服务端发送一份，由服务端查找本机的群成员
+        for (Integer serverId : serverIds) {
+            IMGroupBroadcastInfo imGroupBroadcastInfo = new IMGroupBroadcastInfo(
+                    IMCmdType.GROUP_MESSAGE.getCode(),
+                    message.getSender(),
+                    payload,
+                    groupId,
+                    message.getReceiveTerminals());
+
+            // 构建消息队列目标键，格式：im_message_group_broadcast{优先级后缀}:serverId
+            String sendKey = String.join(IMConstants.MESSAGE_KEY_SPLIT,
+                                         priority.getQueue(IMSdkConstants.IM_MESSAGE_GROUP_BROADCAST_QUEUE),
+                                         serverId.toString());
+
+            // 设置消息目标队列
+            imGroupBroadcastInfo.setDestination(sendKey);
+
+            // 分配消息ID和发送时间后通过消息队列异步发送
+            this.publish(imGroupBroadcastInfo);
+        }
+        groupFanOutOnReadCounter.increment();
+
+        // 向发送者自己的其他终端同步消息
+        this.sendGroupMessageToSelf(message, payload, priority);
+    }
+
+    /**
+     * 判断群聊消息是否改为读时扇出
+     * 未启用时始终按成员发送；启用后未传入成员列表时只能由服务端查找群成员
+     *
+     * @param receiveIds 群成员ID列表
+     * @return 需要按服务端扇出时返回true
+     */
+    private boolean isFanOutOnRead(List<Long> receiveIds) {
+        if (fanOutOnReadThreshold <= 0) {
+            return false;
+        }
+        return CollectionUtil.isEmpty(receiveIds) || receiveIds.size() >= fanOutOnReadThreshold;
     }
 
     /**
@@ -269,45 +517,41 @@ public class DefaultIMSender implements IMSender {
      * 设计说明：
      * 1. 与私聊消息不同，群聊消息默认会同步到自己的所有其他终端
      * 2. 排除发送消息的当前终端，避免消息重复
+     * 3. 连接在同一服务器上的多个终端合并为一个信封
      *
-     * @param message 群聊消息对象
+     * @param message  群聊消息对象
+     * @param payload  编码后的消息载荷
+     * @param priority 消息优先级
      */
-    private <T> void sendGroupMessageToSelf(IMGroupMessage<T> message) {
-        // 遍历所有终端类型
-        for (Integer terminal : IMTerminalType.getAllCode()) {
-            // 排除发送消息的当前终端，避免重复接收
-            if (!terminal.equals(message.getSender().getTerminal())) {
-                // 构建Redis键，查询该终端连接的服务器ID
-                String redisKey = String.join(IMConstants.REDIS_KEY_SPLIT,
-                                              IMConstants.IM_USER_SERVER_ID,
-                                              message.getSender().getUserId().toString(),
-                                              terminal.toString());
-
-                // 获取服务器ID
-                String serverId = distributedCacheService.get(redisKey);
-
-                // 如果服务器ID存在（即该终端在线），发送消息
-                if (!StrUtil.isEmpty(serverId)) {
-                    // 创建消息接收信息对象
-                    IMReceiveInfo imReceiveInfo = new IMReceiveInfo(
-                            IMCmdType.GROUP_MESSAGE.getCode(),
-                            message.getSender(),
-                            Collections.singletonList(new IMUserInfo(message.getSender().getUserId(), terminal)),
-                            false,  // 不需要发送结果回执
-                            message.getData());
-
-                    // 构建消息队列目标键
-                    String sendKey = String.join(IMConstants.MESSAGE_KEY_SPLIT,
-                                                 IMConstants.IM_MESSAGE_GROUP_QUEUE,
-                                                 serverId);
-
-                    // 设置消息目标队列
-                    imReceiveInfo.setDestination(sendKey);
-
-                    // 通过消息队列异步发送
-                    messageSenderService.send(imReceiveInfo);
-                }
-            }
+    private <T> void sendGroupMessageToSelf(IMGroupMessage<T> message, IMPayload payload, IMMessagePriority priority) {
+        // 排除发送消息的当前终端，避免重复接收
+        List<Integer> terminals = new LinkedList<>(IMTerminalType.getAllCode());
+        terminals.remove(message.getSender().getTerminal());
+
+        // 一次批量查询自己其他终端连接的服务器ID，并按服务器分组
+        Map<Integer, List<IMUserInfo>> serverMap = this.groupTerminalsByServer(
+                message.getSender().getUserId(), terminals, null);
+
+        // 同一服务器上的多个终端只发送一个信封
+        for (Map.Entry<Integer, List<IMUserInfo>> entry : serverMap.entrySet()) {
+            // 创建消息接收信息对象
+            IMStampedReceiveInfo imReceiveInfo = new IMStampedReceiveInfo(
+                    IMCmdType.GROUP_MESSAGE.getCode(),
+                    message.getSender(),
+                    entry.getValue(),
+                    false,  // 不需要发送结果回执
+                    payload);
+
+            // 构建消息队列目标键
+            String sendKey = String.join(IMConstants.MESSAGE_KEY_SPLIT,
+                                         priority.getQueue(IMConstants.IM_MESSAGE_GROUP_QUEUE),
+                                         entry.getKey().toString());
+
+            // 设置消息目标队列
+            imReceiveInfo.setDestination(sendKey);
+
+            // 分配消息ID和发送时间后通过消息队列异步发送
+            this.publish(imReceiveInfo);
         }
     }
 
@@ -322,28 +566,30 @@ public class DefaultIMSender implements IMSender {
      * @param serverMap       服务器ID到用户列表的映射
      * @param offlineUserList 离线用户列表
      * @param message         群聊消息对象
+     * @param payload         编码后的消息载荷
+     * @param priority        消息优先级
      */
-    private <T> void sendGroupMessageToOtherUsers(Map<Integer, List<IMUserInfo>> serverMap, List<IMUserInfo> offlineUserList, IMGroupMessage<T> message) {
+    private <T> void sendGroupMessageToOtherUsers(Map<Integer, List<IMUserInfo>> serverMap, List<IMUserInfo> offlineUserList, IMGroupMessage<T> message, IMPayload payload, IMMessagePriority priority) {
         // 遍历服务器分组，为每个服务器构建一条包含多个接收者的消息
         for (Map.Entry<Integer, List<IMUserInfo>> entry : serverMap.entrySet()) {
             // 创建消息接收信息对象，一个消息对象包含了同一服务器上的多个接收者
-            IMReceiveInfo imReceiveInfo = new IMReceiveInfo(
+            IMStampedReceiveInfo imReceiveInfo = new IMStampedReceiveInfo(
                     IMCmdType.GROUP_MESSAGE.getCode(),
                     message.getSender(),
                     new LinkedList<>(entry.getValue()),  // 该服务器上的接收用户列表
                     message.getSendResult(),  // 是否需要发送结果回执
-                    message.getData());
+                    payload);
 
             // 构建消息队列目标键
             String sendKey = String.join(IMConstants.MESSAGE_KEY_SPLIT,
-                                         IMConstants.IM_MESSAGE_GROUP_QUEUE,
+                                         priority.getQueue(IMConstants.IM_MESSAGE_GROUP_QUEUE),
                                          entry.getKey().toString());
 
             // 设置消息目标队列
             imReceiveInfo.setDestination(sendKey);
 
-            // 通过消息队列异步发送
-            messageSenderService.send(imReceiveInfo);
+            // 分配消息ID和发送时间后通过消息队列异步发送
+            this.publish(imReceiveInfo);
         }
 
         // 如果需要发送结果回执，则处理离线用户
@@ -357,43 +603,145 @@ public class DefaultIMSender implements IMSender {
                         IMSendCode.NOT_ONLINE.getCode(),  // 不在线状态码
                         message.getData());
 
-                // 通过监听器多播器通知消息未送达
-                messageListenerMulticaster.multicast(IMListenerType.GROUP_MESSAGE, result);
+                // 通知消息未送达
+                this.notifyOffline(IMListenerType.GROUP_MESSAGE, result);
             });
         }
     }
 
     /**
-     * 构建用户终端分组，用于批量查询用户在线状态
+     * 向所有在线用户广播消息
      * <p>
      * 设计说明：
-     * 1. 将用户ID和终端类型组合成Redis键，便于批量查询
-     * 2. 返回键值对映射，键为Redis查询键，值为用户信息对象
+     * 1. 不逐个查询用户路由，而是向每个存活的服务端发送一份广播信封
+     * 2. 由服务端按过滤条件投递给本机的在线连接，发送成本与服务端数量成正比
+     * 3. 广播不需要逐个用户的发送结果回执
+     * 4. 存活视图为空（尚未读取到心跳或所有心跳都已超时）时无法投递，记录日志和指标后放弃
      *
-     * @param message 群聊消息对象
-     * @return 用户终端分组映射
+     * @param message 广播消息对象
      */
-    private <T> Map<String, IMUserInfo> getUserTerminalGroup(IMGroupMessage<T> message) {
-        Map<String, IMUserInfo> map = new HashMap<>();
-        if (message == null) {
-            return map;
+    @Override
+    public <T> void broadcast(IMBroadcastMessage<T> message) {
+        // 空消息检查，防止NPE
+        if (message == null) return;
+
+        // 获取所有存活的服务端
+        Set<Integer> serverIds = imServerRegistry.getLiveServerIds();
+        if (serverIds.isEmpty()) {
+            noLiveServerCounter.increment();
+            logger.warn("DefaultIMSender.broadcast|没有存活的IM服务端，广播消息未发送, sender:{}", message.getSender());
+            return;
         }
 
-        // 遍历所有接收终端类型
-        for (Integer terminal : message.getReceiveTerminals()) {
-            // 遍历所有接收用户ID
-            message.getReceiveIds().forEach((receiveId) -> {
-                // 构建Redis键，格式：IM_USER_SERVER_ID:userId:terminalType
-                String key = String.join(IMConstants.REDIS_KEY_SPLIT,
-                                         IMConstants.IM_USER_SERVER_ID,
-                                         receiveId.toString(),
-                                         terminal.toString());
-
-                // 将键与对应的用户信息放入映射
-                map.put(key, new IMUserInfo(receiveId, terminal));
-            });
+        // 载荷只编码一次，发往各服务端的广播信封共享
+        IMPayload payload = imPayloadCodec.encode(message.getData());
+        for (Integer serverId : serverIds) {
+            // 创建广播信封，携带终端类型和用户ID区间等过滤条件
+            IMBroadcastInfo imBroadcastInfo = new IMBroadcastInfo(
+                    IMCmdType.PRIVATE_MESSAGE.getCode(),
+                    message.getSender(),
+                    payload,
+                    message);
+
+            // 构建消息队列目标键，格式：im_message_broadcast:serverId
+            String sendKey = String.join(IMConstants.MESSAGE_KEY_SPLIT,
+                                         IMSdkConstants.IM_MESSAGE_BROADCAST_QUEUE,
+                                         serverId.toString());
+
+            // 设置消息目标队列
+            imBroadcastInfo.setDestination(sendKey);
+
+            // 分配消息ID和发送时间后通过消息队列异步发送
+            this.publish(imBroadcastInfo);
+        }
+    }
+
+    /**
+     * 查询同一用户多个终端连接的服务器ID，并按服务器ID分组
+     * <p>
+     * 设计说明：
+     * 1. 所有终端一次批量查询，只有一次Redis网络往返
+     * 2. 按服务器分组后，同一服务器上的多个终端只需要一个信封
+     *
+     * @param userId          用户ID
+     * @param terminals       需要查询的终端类型
+     * @param offlineUserList 不在线或所连服务端已下线的终端加入该列表，为空时忽略这些终端
+     * @return 服务器ID到该服务器上的终端列表的映射
+     */
+    private Map<Integer, List<IMUserInfo>> groupTerminalsByServer(Long userId, Collection<Integer> terminals, List<IMUserInfo> offlineUserList) {
+        if (CollectionUtil.isEmpty(terminals)) {
+            return Collections.emptyMap();
         }
-        return map;
+
+        long[] userIds = new long[terminals.size()];
+        int[] terminalArray = new int[terminals.size()];
+        int idx = 0;
+        for (Integer terminal : terminals) {
+            userIds[idx] = userId;
+            terminalArray[idx++] = terminal;
+        }
+        int[] serverIds = imRouteRepository.getServerIds(userIds, terminalArray);
+
+        Map<Integer, List<IMUserInfo>> serverMap = new LinkedHashMap<>();
+        for (int i = 0; i < serverIds.length; i++) {
+            IMUserInfo userInfo = new IMUserInfo(userId, terminalArray[i]);
+            if (this.isRoutable(serverIds[i], true)) {
+                serverMap.computeIfAbsent(serverIds[i], o -> new LinkedList<>()).add(userInfo);
+            } else if (offlineUserList != null) {
+                offlineUserList.add(userInfo);
+            }
+        }
+        return serverMap;
+    }
+
+    /**
+     * 通知不在线的发送结果
+     * 启用离线暂存时先写入暂存日志，暂存已满或出错时退回到直接通知监听器
+     *
+     * @param listenerType 消息类型
+     * @param result       状态为NOT_ONLINE的发送结果
+     */
+    private <T> void notifyOffline(IMListenerType listenerType, IMSendResult<T> result) {
+        if (imOfflineSpool != null && imOfflineSpool.append(listenerType, result)) {
+            return;
+        }
+        messageListenerMulticaster.multicast(listenerType, result);
+    }
+
+    /**
+     * 判断路由查询得到的服务器ID是否可以投递
+     * <p>
+     * 服务端宕机后，连接在其上的终端的路由键要等到过期才会消失，
+     * 这段时间内按不在线处理，避免消息投递到无人消费的队列而丢失
+     *
+     * @param serverId 路由查询得到的服务器ID
+     * @param sending  是否为发送路径，只有发送路径才计入route.dead.server，在线状态查询不计入
+     * @return 终端在线且所连服务端存活时返回true
+     */
+    private boolean isRoutable(int serverId, boolean sending) {
+        if (serverId == IMRouteRepository.NOT_ONLINE) {
+            return false;
+        }
+        if (!imServerRegistry.isAlive(serverId)) {
+            if (sending) {
+                deadServerRouteCounter.increment();
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 发送信封
+     * <p>
+     * 发送前由投递跟踪器分配消息ID和发送时间并登记待确认的接收者，
+     * 登记在发送之前完成，避免结果先于登记到达
+     *
+     * @param receiveInfo 需要发送的信封，已设置目标队列
+     */
+    private void publish(IMStampedReceiveInfo receiveInfo) {
+        imDeliveryTracker.track(receiveInfo);
+        messageSenderService.send(receiveInfo);
     }
 
     /**
@@ -414,37 +762,37 @@ public class DefaultIMSender implements IMSender {
             return Collections.emptyMap();
         }
 
-        // 构建用户与终端类型的键值对，用于Redis批量查询
-        Map<String, IMUserInfo> userMap = new HashMap<>();
+        // 为每个用户的每种终端类型创建一个查询项
+        List<Integer> allTerminals = IMTerminalType.getAllCode();
+        int size = userIds.size() * allTerminals.size();
+        long[] queryUserIds = new long[size];
+        int[] queryTerminals = new int[size];
+        int idx = 0;
         for (Long userId : userIds) {
-            // 为每个用户的每种终端类型创建一个查询键
-            for (Integer terminal : IMTerminalType.getAllCode()) {
-                String key = String.join(IMConstants.REDIS_KEY_SPLIT,
-                                         IMConstants.IM_USER_SERVER_ID,
-                                         userId.toString(),
-                                         terminal.toString());
-                userMap.put(key, new IMUserInfo(userId, terminal));
+            for (Integer terminal : allTerminals) {
+                queryUserIds[idx] = userId;
+                queryTerminals[idx++] = terminal;
             }
         }
 
         // 从Redis批量获取数据，一次网络请求获取所有用户终端的在线状态
-        List<String> serverIdList = distributedCacheService.multiGet(userMap.keySet());
+        int[] serverIds = imRouteRepository.getServerIds(queryUserIds, queryTerminals);
 
         // 处理查询结果，构建返回映射
-        int idx = 0;
         Map<Long, List<IMTerminalType>> onlineMap = new HashMap<>();
-        for (Map.Entry<String, IMUserInfo> entry : userMap.entrySet()) {
-            // 如果服务器ID存在（不为空），表示该终端在线
-            if (!StrUtil.isEmpty(serverIdList.get(idx++))) {
-                IMUserInfo imUserInfo = entry.getValue();
-
+        for (int i = 0; i < size; i++) {
+            // 服务器ID存在且该服务端存活，表示该终端在线，与发送路径的判断保持一致
+            if (this.isRoutable(serverIds[i], false)) {
                 // 获取或创建用户的终端类型列表
                 List<IMTerminalType> imTerminalTypeList = onlineMap.computeIfAbsent(
-                        imUserInfo.getUserId(),
+                        queryUserIds[i],
                         o -> new LinkedList<>());
 
                 // 添加终端类型到列表
-                imTerminalTypeList.add(IMTerminalType.getByCode(imUserInfo.getTerminal()));
+                IMTerminalType terminalType = IMTerminalType.getByCode(queryTerminals[i]);
+                if (!imTerminalTypeList.contains(terminalType)) {
+                    imTerminalTypeList.add(terminalType);
+                }
             }
         }
         return onlineMap;
@@ -454,7 +802,7 @@ public class DefaultIMSender implements IMSender {
      * 判断用户是否在线
      * <p>
      * 设计说明：
-     * 1. 使用Redis的模式匹配查询，一次查询获取用户所有终端的在线状态
+     * 1. 一次批量查询获取用户所有终端的在线状态，不使用会扫描整个键空间的KEYS模式匹配
      * 2. 如果任一终端在线，则视为用户在线
      *
      * @param userId 用户ID
@@ -462,17 +810,23 @@ public class DefaultIMSender implements IMSender {
      */
     @Override
     public Boolean isOnline(Long userId) {
-        // 构建Redis模式匹配键，使用通配符匹配所有终端
-        String redisKey = String.join(IMConstants.REDIS_KEY_SPLIT,
-                                      IMConstants.IM_USER_SERVER_ID,
-                                      userId.toString(),
-                                      "*");
-
-        // 获取匹配的所有键
-        Set<String> keys = distributedCacheService.keys(redisKey);
+        // 查询用户所有终端连接的服务器ID
+        List<Integer> allTerminals = IMTerminalType.getAllCode();
+        long[] queryUserIds = new long[allTerminals.size()];
+        int[] queryTerminals = new int[allTerminals.size()];
+        for (int i = 0; i < queryTerminals.length; i++) {
+            queryUserIds[i] = userId;
+            queryTerminals[i] = allTerminals.get(i);
+        }
+        int[] serverIds = imRouteRepository.getServerIds(queryUserIds, queryTerminals);
 
-        // 如果存在匹配的键，表示用户至少有一个终端在线
-        return !CollectionUtil.isEmpty(keys);
+        // 如果存在在线且所连服务端存活的终端，表示用户在线
+        for (int serverId : serverIds) {
+            if (this.isRoutable(serverId, false)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -0,0 +1,21 @@
+package com.lb.im.sdk.interfaces.signal;
+
+import com.lb.im.sdk.domain.model.IMSignal;
+
+/**
+ * 临时信号发送接口
+ * 
+ * 正在输入、已读回执等只关心最新状态的信号使用该接口发送，不占用私聊消息通道。
+ * 信号先在本地合并，按固定窗口批量发送，不跟踪发送结果，接收者不在线时直接丢弃。
+ */
+public interface IMSignalSender {
+
+    /**
+     * 发送临时信号
+     * 只放入合并窗口后立即返回，同一发送者、接收者和信号类型在窗口内只保留最后一个
+     *
+     * @param signal 临时信号
+     * @param <T> 信号内容的类型参数
+     */
+    <T> void sendSignal(IMSignal<T> signal);
+}
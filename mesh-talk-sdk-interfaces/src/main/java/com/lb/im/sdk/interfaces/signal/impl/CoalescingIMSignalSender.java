@@ -0,0 +1,307 @@
+package com.lb.im.sdk.interfaces.signal.impl;
+
+import cn.hutool.core.collection.CollectionUtil;
+import com.lb.im.common.domain.constans.IMConstants;
+import com.lb.im.common.domain.model.IMUserInfo;
+import com.lb.im.common.mq.MessageSenderService;
+import com.lb.im.sdk.domain.constants.IMSdkConstants;
+import com.lb.im.sdk.domain.model.IMSignal;
+import com.lb.im.sdk.domain.model.IMSignalBatchInfo;
+import com.lb.im.sdk.domain.model.IMSignalInfo;
+import com.lb.im.sdk.infrastructure.config.IMSdkProperties;
+import com.lb.im.sdk.infrastructure.metrics.IMMetrics;
+import com.lb.im.sdk.infrastructure.route.IMRouteRepository;
+import com.lb.im.sdk.infrastructure.server.IMServerRegistry;
+import com.lb.im.sdk.interfaces.signal.IMSignalSender;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 合并发送的临时信号实现
+ * <p>
+ * 设计说明：
+ * 1. 发送线程只把信号放入以(发送者, 接收者, 信号类型)为键的并发Map，后到的信号覆盖先到的，
+ *    连续的正在输入信号在一个窗口内只发送一次
+ * 2. 后台线程每个窗口取出所有待发送的信号，一次批量查询所有接收终端的路由
+ * 3. 按目标服务端分组，一个服务端只发送一个信封，信封数量与服务端数量成正比，而不是与信号数量成正比
+ * 4. 不分配消息ID、不登记投递跟踪，接收者不在线或所连服务端已下线时直接丢弃
+ * 5. 待发送的信号数量有上限，突发流量下丢弃新的信号，不影响普通消息
+ * 6. 缺少发送者、接收者或接收终端的信号在提交时直接拒绝；接收终端在提交时复制一份，
+ *    调用方之后修改自己的列表不影响发送
+ * <p>
+ * 发布的指标：
+ * 1. im.sdk.signal.offered - 提交的信号数
+ * 2. im.sdk.signal.coalesced - 被同类新信号覆盖的信号数
+ * 3. im.sdk.signal.dropped - 超过上限被丢弃的信号数
+ * 4. im.sdk.signal.envelopes - 发出的信号信封数
+ * 5. im.sdk.signal.pending - 等待发送的信号数
+ * 6. im.sdk.signal.rejected - 参数不完整被拒绝的信号数
+ */
+public class CoalescingIMSignalSender implements IMSignalSender, InitializingBean, DisposableBean {
+
+    // 日志记录器
+    private final Logger logger = LoggerFactory.getLogger(CoalescingIMSignalSender.class);
+
+    @Autowired
+    private IMRouteRepository imRouteRepository;
+
+    @Autowired
+    private IMServerRegistry imServerRegistry;
+
+    @Autowired
+    private MessageSenderService messageSenderService;
+
+    @Autowired
+    private IMSdkProperties imSdkProperties;
+
+    @Autowired
+    private IMMetrics imMetrics;
+
+    /**
+     * 当前窗口内等待发送的信号
+     */
+    private final ConcurrentHashMap<SignalKey, PendingSignal> pending = new ConcurrentHashMap<>();
+
+    private int maxPending;
+
+    private int maxBatchSize;
+
+    private ScheduledExecutorService scheduler;
+
+    private Counter offeredCounter;
+
+    private Counter coalescedCounter;
+
+    private Counter droppedCounter;
+
+    private Counter envelopeCounter;
+
+    private Counter rejectedCounter;
+
+    @Override
+    public void afterPropertiesSet() {
+        IMSdkProperties.Signal signal = imSdkProperties.getSignal();
+        maxPending = signal.getMaxPending();
+        maxBatchSize = Math.max(1, signal.getMaxBatchSize());
+
+        offeredCounter = Counter.builder(IMMetrics.PREFIX + "signal.offered")
+                .description("提交的临时信号数")
+                .register(imMetrics.getRegistry());
+        coalescedCounter = Counter.builder(IMMetrics.PREFIX + "signal.coalesced")
+                .description("被同类新信号覆盖的临时信号数")
+                .register(imMetrics.getRegistry());
+        droppedCounter = Counter.builder(IMMetrics.PREFIX + "signal.dropped")
+                .description("超过上限被丢弃的临时信号数")
+                .register(imMetrics.getRegistry());
+        envelopeCounter = Counter.builder(IMMetrics.PREFIX + "signal.envelopes")
+                .description("发出的信号信封数")
+                .register(imMetrics.getRegistry());
+        rejectedCounter = Counter.builder(IMMetrics.PREFIX + "signal.rejected")
+                .description("参数不完整被拒绝的临时信号数")
+                .register(imMetrics.getRegistry());
+        Gauge.builder(IMMetrics.PREFIX + "signal.pending", pending, Map::size)
+                .description("等待发送的临时信号数")
+                .register(imMetrics.getRegistry());
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "im-signal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, signal.getWindowMillis(), signal.getWindowMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    @Override
+    public <T> void sendSignal(IMSignal<T> signal) {
+        PendingSignal accepted = PendingSignal.of(signal);
+        if (accepted == null) {
+            rejectedCounter.increment();
+            logger.warn("CoalescingIMSignalSender.sendSignal|临时信号缺少发送者、接收者或接收终端，已拒绝, signal:{}", signal);
+            return;
+        }
+        offeredCounter.increment();
+        SignalKey key = new SignalKey(accepted.sender.getUserId(), accepted.receiveId, accepted.kind);
+        // 已有同类信号时覆盖不增加数量，不受上限限制
+        if (pending.size() >= maxPending && !pending.containsKey(key)) {
+            droppedCounter.increment();
+            return;
+        }
+        if (pending.put(key, accepted) != null) {
+            coalescedCounter.increment();
+        }
+    }
+
+    /**
+     * 发送当前窗口内的所有信号
+     * 逐个移除而不是整体替换，发送期间新提交的信号留到下一个窗口
+     */
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            List<PendingSignal> signals = new ArrayList<>(pending.size());
+            int terminalCount = 0;
+            for (SignalKey key : pending.keySet()) {
+                PendingSignal signal = pending.remove(key);
+                if (signal != null) {
+                    signals.add(signal);
+                    terminalCount += signal.terminals.length;
+                }
+            }
+
+            // 所有信号的接收终端一次批量查询路由
+            long[] userIds = new long[terminalCount];
+            int[] terminals = new int[terminalCount];
+            int idx = 0;
+            for (PendingSignal signal : signals) {
+                for (int terminal : signal.terminals) {
+                    userIds[idx] = signal.receiveId;
+                    terminals[idx++] = terminal;
+                }
+            }
+            int[] serverIds = imRouteRepository.getServerIds(userIds, terminals);
+
+            // 按服务端分组，同一信号在同一服务端上的多个终端合并为一条
+            Map<Integer, List<IMSignalInfo>> serverSignals = new HashMap<>();
+            idx = 0;
+            for (PendingSignal signal : signals) {
+                Map<Integer, List<IMUserInfo>> receivers = new LinkedHashMap<>();
+                for (int i = 0; i < signal.terminals.length; i++, idx++) {
+                    int serverId = serverIds[idx];
+                    if (serverId == IMRouteRepository.NOT_ONLINE || !imServerRegistry.isAlive(serverId)) {
+                        continue;
+                    }
+                    receivers.computeIfAbsent(serverId, o -> new LinkedList<>()).add(new IMUserInfo(userIds[idx], terminals[idx]));
+                }
+                for (Map.Entry<Integer, List<IMUserInfo>> entry : receivers.entrySet()) {
+                    serverSignals.computeIfAbsent(entry.getKey(), o -> new ArrayList<>())
+                            .add(new IMSignalInfo(signal.sender, entry.getValue(), signal.kind, signal.data));
+                }
+            }
+
+            for (Map.Entry<Integer, List<IMSignalInfo>> entry : serverSignals.entrySet()) {
+                // 构建消息队列目标键，格式：im_message_signal:serverId
+                String sendKey = String.join(IMConstants.MESSAGE_KEY_SPLIT,
+                                             IMSdkConstants.IM_MESSAGE_SIGNAL_QUEUE,
+                                             entry.getKey().toString());
+                List<IMSignalInfo> serverSignalList = entry.getValue();
+                for (int from = 0; from < serverSignalList.size(); from += maxBatchSize) {
+                    IMSignalBatchInfo batchInfo = new IMSignalBatchInfo(
+                            serverSignalList.subList(from, Math.min(from + maxBatchSize, serverSignalList.size())));
+                    batchInfo.setDestination(sendKey);
+                    messageSenderService.send(batchInfo);
+                    envelopeCounter.increment();
+                }
+            }
+        } catch (Exception e) {
+            // 临时信号丢失不影响业务，下一个窗口继续发送
+            logger.warn("CoalescingIMSignalSender.flush|发送临时信号失败", e);
+        }
+    }
+
+    /**
+     * 已接收的信号，提交时复制发送者和接收终端，之后与调用方的对象无关
+     */
+    private static final class PendingSignal {
+
+        private final IMUserInfo sender;
+
+        private final long receiveId;
+
+        private final int[] terminals;
+
+        private final String kind;
+
+        private final Object data;
+
+        private PendingSignal(IMUserInfo sender, long receiveId, int[] terminals, String kind, Object data) {
+            this.sender = sender;
+            this.receiveId = receiveId;
+            this.terminals = terminals;
+            this.kind = kind;
+            this.data = data;
+        }
+
+        /**
+         * 校验并复制信号，发送者、发送者ID、接收者ID缺失，接收终端为空或包含null时返回null
+         */
+        private static PendingSignal of(IMSignal<?> signal) {
+            if (signal == null || signal.getSender() == null || signal.getSender().getUserId() == null
+                    || signal.getReceiveId() == null || CollectionUtil.isEmpty(signal.getReceiveTerminals())) {
+                return null;
+            }
+            Integer[] receiveTerminals = signal.getReceiveTerminals().toArray(new Integer[0]);
+            int[] terminals = new int[receiveTerminals.length];
+            for (int i = 0; i < receiveTerminals.length; i++) {
+                if (receiveTerminals[i] == null) {
+                    return null;
+                }
+                terminals[i] = receiveTerminals[i];
+            }
+            IMUserInfo sender = new IMUserInfo(signal.getSender().getUserId(), signal.getSender().getTerminal());
+            return new PendingSignal(sender, signal.getReceiveId(), terminals, signal.getKind(), signal.getData());
+        }
+    }
+
+    /**
+     * 信号合并键：发送者、接收者、信号类型
+     */
+    private static final class SignalKey {
+
+        private final long senderId;
+
+        private final long receiveId;
+
+        private final String kind;
+
+        private SignalKey(long senderId, long receiveId, String kind) {
+            this.senderId = senderId;
+            this.receiveId = receiveId;
+            this.kind = kind;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof SignalKey)) {
+                return false;
+            }
+            SignalKey that = (SignalKey) o;
+            return senderId == that.senderId && receiveId == that.receiveId && Objects.equals(kind, that.kind);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Long.hashCode(senderId);
+            result = 31 * result + Long.hashCode(receiveId);
+            return 31 * result + Objects.hashCode(kind);
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.lb.im.sdk.interfaces.signal.impl;
+
+import com.lb.im.common.domain.constans.IMConstants;
+import com.lb.im.common.domain.model.IMUserInfo;
+import com.lb.im.common.mq.MessageSenderService;
+import com.lb.im.sdk.domain.constants.IMSdkConstants;
+import com.lb.im.sdk.domain.model.IMSignal;
+import com.lb.im.sdk.domain.model.IMSignalBatchInfo;
+import com.lb.im.sdk.domain.model.IMSignalInfo;
+import com.lb.im.sdk.infrastructure.config.IMSdkProperties;
+import com.lb.im.sdk.infrastructure.metrics.IMMetrics;
+import com.lb.im.sdk.infrastructure.route.IMRouteRepository;
+import com.lb.im.sdk.infrastructure.server.IMServerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 合并发送的临时信号测试
+ * <p>
+ * 合并窗口设置得足够长，测试期间不会自动发送，由测试直接调用flush。
+ * 路由和服务端存活状态由内存中的表模拟，发出的信封记录下来逐个检查。
+ */
+public class CoalescingIMSignalSenderTest {
+
+    private static final IMUserInfo SENDER = new IMUserInfo(1L, 0);
+
+    private static final String TYPING = "typing";
+
+    /**
+     * 用户终端到所连服务端的路由，键的格式：userId:terminal
+     */
+    private final Map<String, Integer> routes = new HashMap<>();
+
+    private final Set<Integer> deadServers = new HashSet<>();
+
+    private final List<IMSignalBatchInfo> envelopes = new ArrayList<>();
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private final IMSdkProperties properties = new IMSdkProperties();
+
+    private final CoalescingIMSignalSender sender = new CoalescingIMSignalSender();
+
+    @BeforeEach
+    public void setUp() {
+        properties.getSignal().setWindowMillis(TimeUnit.HOURS.toMillis(1));
+
+        MessageSenderService messageSenderService = mock(MessageSenderService.class);
+        when(messageSenderService.send(any())).thenAnswer(invocation -> envelopes.add(invocation.getArgument(0)));
+        IMMetrics imMetrics = new IMMetrics();
+        ReflectionTestUtils.setField(imMetrics, "meterRegistry", registry);
+
+        ReflectionTestUtils.setField(sender, "imRouteRepository", new MapRouteRepository());
+        ReflectionTestUtils.setField(sender, "imServerRegistry", new SetServerRegistry());
+        ReflectionTestUtils.setField(sender, "messageSenderService", messageSenderService);
+        ReflectionTestUtils.setField(sender, "imSdkProperties", properties);
+        ReflectionTestUtils.setField(sender, "imMetrics", imMetrics);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        sender.destroy();
+    }
+
+    @Test
+    public void coalescesSameKindAndKeepsLatestData() {
+        sender.afterPropertiesSet();
+        routes.put(route(2L, 0), 1);
+
+        sender.sendSignal(signal(2L, TYPING, "first", 0));
+        sender.sendSignal(signal(2L, TYPING, "second", 0));
+        this.flush();
+
+        assertEquals(1, envelopes.size());
+        List<IMSignalInfo> signals = envelopes.get(0).getSignals();
+        assertEquals(1, signals.size());
+        assertEquals("second", signals.get(0).getData());
+        assertEquals(2.0, this.count("signal.offered"), 0.0);
+        assertEquals(1.0, this.count("signal.coalesced"), 0.0);
+
+        // 已发送的信号不会在下一个窗口重复发送
+        this.flush();
+        assertEquals(1, envelopes.size());
+    }
+
+    @Test
+    public void differentKindsAndReceiversAreNotCoalesced() {
+        sender.afterPropertiesSet();
+        routes.put(route(2L, 0), 1);
+        routes.put(route(3L, 0), 1);
+
+        sender.sendSignal(signal(2L, TYPING, "a", 0));
+        sender.sendSignal(signal(2L, "read", "b", 0));
+        sender.sendSignal(signal(3L, TYPING, "c", 0));
+        this.flush();
+
+        assertEquals(1, envelopes.size());
+        assertEquals(3, envelopes.get(0).getSignals().size());
+        assertEquals(0.0, this.count("signal.coalesced"), 0.0);
+    }
+
+    @Test
+    public void groupsSignalsByServerAndDropsOfflineTerminals() {
+        sender.afterPropertiesSet();
+        routes.put(route(2L, 0), 1);
+        routes.put(route(2L, 1), 1);
+        routes.put(route(2L, 2), 2);
+        // 终端3的路由指向已下线的服务端，终端4不在线
+        routes.put(route(2L, 3), 9);
+        deadServers.add(9);
+
+        sender.sendSignal(signal(2L, TYPING, "hello", 0, 1, 2, 3, 4));
+        this.flush();
+
+        assertEquals(2, envelopes.size());
+        Map<String, List<IMSignalInfo>> byDestination = new HashMap<>();
+        for (IMSignalBatchInfo envelope : envelopes) {
+            byDestination.put(envelope.getDestination(), envelope.getSignals());
+        }
+        // 同一服务端上的多个终端合并为一条信号
+        List<IMSignalInfo> first = byDestination.get(destination(1));
+        assertEquals(1, first.size());
+        assertEquals(Arrays.asList(0, 1), terminals(first.get(0)));
+        assertEquals(SENDER.getUserId(), first.get(0).getSender().getUserId());
+        assertEquals(TYPING, first.get(0).getKind());
+        List<IMSignalInfo> second = byDestination.get(destination(2));
+        assertEquals(1, second.size());
+        assertEquals(Collections.singletonList(2), terminals(second.get(0)));
+        assertEquals(2.0, this.count("signal.envelopes"), 0.0);
+    }
+
+    @Test
+    public void splitsEnvelopesByMaxBatchSize() {
+        properties.getSignal().setMaxBatchSize(2);
+        sender.afterPropertiesSet();
+        for (long receiveId = 2L; receiveId < 7L; receiveId++) {
+            routes.put(route(receiveId, 0), 1);
+            sender.sendSignal(signal(receiveId, TYPING, "hello", 0));
+        }
+        this.flush();
+
+        List<Integer> sizes = new ArrayList<>();
+        for (IMSignalBatchInfo envelope : envelopes) {
+            assertEquals(destination(1), envelope.getDestination());
+            sizes.add(envelope.getSignals().size());
+        }
+        assertEquals(Arrays.asList(2, 2, 1), sizes);
+    }
+
+    @Test
+    public void rejectsIncompleteSignals() {
+        sender.afterPropertiesSet();
+        routes.put(route(2L, 0), 1);
+
+        sender.sendSignal(new IMSignal<>(new IMUserInfo(null, 0), 2L, Collections.singletonList(0), TYPING, "a"));
+        sender.sendSignal(new IMSignal<>(null, 2L, Collections.singletonList(0), TYPING, "b"));
+        sender.sendSignal(new IMSignal<>(SENDER, null, Collections.singletonList(0), TYPING, "c"));
+        sender.sendSignal(new IMSignal<>(SENDER, 2L, Collections.<Integer>emptyList(), TYPING, "d"));
+        sender.sendSignal(new IMSignal<>(SENDER, 2L, Arrays.asList(0, null), TYPING, "e"));
+        this.flush();
+
+        assertTrue(envelopes.isEmpty());
+        assertEquals(5.0, this.count("signal.rejected"), 0.0);
+        assertEquals(0.0, this.count("signal.offered"), 0.0);
+    }
+
+    @Test
+    public void copiesTerminalsAndSenderOnSubmit() {
+        sender.afterPropertiesSet();
+        routes.put(route(2L, 0), 1);
+        routes.put(route(2L, 1), 2);
+        List<Integer> receiveTerminals = new ArrayList<>(Collections.singletonList(0));
+        IMUserInfo signalSender = new IMUserInfo(1L, 0);
+
+        sender.sendSignal(new IMSignal<>(signalSender, 2L, receiveTerminals, TYPING, "hello"));
+        // 提交之后调用方修改自己的对象，不影响已提交的信号
+        receiveTerminals.set(0, 1);
+        signalSender.setUserId(99L);
+        this.flush();
+
+        assertEquals(1, envelopes.size());
+        assertEquals(destination(1), envelopes.get(0).getDestination());
+        assertEquals(1L, (long) envelopes.get(0).getSignals().get(0).getSender().getUserId());
+    }
+
+    @Test
+    public void dropsNewSignalsBeyondMaxPending() {
+        properties.getSignal().setMaxPending(2);
+        sender.afterPropertiesSet();
+        for (long receiveId = 2L; receiveId < 5L; receiveId++) {
+            routes.put(route(receiveId, 0), 1);
+        }
+
+        sender.sendSignal(signal(2L, TYPING, "a", 0));
+        sender.sendSignal(signal(3L, TYPING, "b", 0));
+        sender.sendSignal(signal(4L, TYPING, "c", 0));
+        // 覆盖已有的信号不受上限限制
+        sender.sendSignal(signal(3L, TYPING, "d", 0));
+        this.flush();
+
+        assertEquals(1.0, this.count("signal.dropped"), 0.0);
+        assertEquals(1.0, this.count("signal.coalesced"), 0.0);
+        Set<Object> data = new HashSet<>();
+        for (IMSignalInfo signal : envelopes.get(0).getSignals()) {
+            data.add(signal.getData());
+        }
+        assertEquals(new HashSet<>(Arrays.asList("a", "d")), data);
+    }
+
+    private void flush() {
+        ReflectionTestUtils.invokeMethod(sender, "flush");
+    }
+
+    private double count(String name) {
+        return registry.get(IMMetrics.PREFIX + name).counter().count();
+    }
+
+    private static IMSignal<String> signal(long receiveId, String kind, String data, Integer... terminals) {
+        return new IMSignal<>(SENDER, receiveId, Arrays.asList(terminals), kind, data);
+    }
+
+    private static String route(long userId, int terminal) {
+        return userId + ":" + terminal;
+    }
+
+    private static String destination(int serverId) {
+        return String.join(IMConstants.MESSAGE_KEY_SPLIT, IMSdkConstants.IM_MESSAGE_SIGNAL_QUEUE, String.valueOf(serverId));
+    }
+
+    private static List<Integer> terminals(IMSignalInfo signal) {
+        List<Integer> terminals = new ArrayList<>();
+        for (IMUserInfo receiver : signal.getReceivers()) {
+            terminals.add(receiver.getTerminal());
+        }
+        return terminals;
+    }
+
+    /**
+     * 从路由表查询用户终端所连的服务端
+     */
+    private class MapRouteRepository implements IMRouteRepository {
+
+        @Override
+        public int getServerId(long userId, int terminal) {
+            return routes.getOrDefault(route(userId, terminal), NOT_ONLINE);
+        }
+
+        @Override
+        public int[] getServerIds(long[] userIds, int[] terminals) {
+            int[] serverIds = new int[userIds.length];
+            for (int i = 0; i < userIds.length; i++) {
+                serverIds[i] = this.getServerId(userIds[i], terminals[i]);
+            }
+            return serverIds;
+        }
+    }
+
+    /**
+     * 除已下线的服务端外全部存活
+     */
+    private class SetServerRegistry implements IMServerRegistry {
+
+        @Override
+        public Set<Integer> getLiveServerIds() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public boolean isAlive(int serverId) {
+            return !deadServers.contains(serverId);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.lb.im.sdk.simulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * SDK负载模拟器入口
+ * <p>
+ * 用N个模拟用户、M个模拟服务端驱动真实的IMClient，外部依赖全部使用内存替身，
+ * 输出每个场景的吞吐量、发送耗时分位、回执延迟分位、每条消息的Redis往返次数和分配速率。
+ * <p>
+ * 参数均为key=value形式：
+ * 1. scenario=private,group-large 只运行指定的内置场景，默认运行全部
+ * 2. 其余参数覆盖所有选中场景的字段，例如 users=500000 servers=16 groupSize=1000 redisLatencyMicros=200
+ * 3. im.sdk开头的参数作为SDK配置，例如 im.sdk.compression.enabled=true
+ */
+public class IMLoadSimulator {
+
+    public static void main(String[] args) throws InterruptedException {
+        List<String> selected = null;
+        List<String[]> overrides = new ArrayList<>();
+        for (String arg : args) {
+            int idx = arg.indexOf('=');
+            if (idx <= 0) {
+                throw new IllegalArgumentException("参数格式应为key=value:" + arg);
+            }
+            String key = arg.substring(0, idx);
+            String value = arg.substring(idx + 1);
+            if ("scenario".equals(key)) {
+                selected = Arrays.asList(value.split(","));
+            } else {
+                overrides.add(new String[]{key, value});
+            }
+        }
+
+        List<SimulationScenario> scenarios = new ArrayList<>();
+        for (SimulationScenario scenario : SimulationScenario.defaults()) {
+            if (selected == null || selected.contains(scenario.getName())) {
+                for (String[] override : overrides) {
+                    scenario.set(override[0], override[1]);
+                }
+                scenarios.add(scenario);
+            }
+        }
+        if (scenarios.isEmpty()) {
+            throw new IllegalArgumentException("没有匹配的场景:" + selected);
+        }
+
+        ScenarioRunner runner = new ScenarioRunner();
+        List<ScenarioReport> reports = new ArrayList<>();
+        for (SimulationScenario scenario : scenarios) {
+            reports.add(runner.run(scenario));
+        }
+        // 容器日志输出完之后统一打印结果
+        for (ScenarioReport report : reports) {
+            report.print(System.out);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.lb.im.sdk.simulator;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 线程安全的延迟直方图
+ * <p>
+ * 按对数分桶，每个2的幂区间再分为16个子桶，相对误差约6%。
+ * 记录时只做一次原子自增，不保存样本，长时间压测也不会占用额外内存。
+ */
+public class LatencyHistogram {
+
+    /**
+     * 每个2的幂区间的子桶数量的位数
+     */
+    private static final int SUB_BITS = 4;
+
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray((64 - SUB_BITS + 1) * SUB_COUNT);
+
+    /**
+     * 记录一次延迟
+     *
+     * @param nanos 延迟（纳秒）
+     */
+    public void record(long nanos) {
+        buckets.incrementAndGet(index(Math.max(0L, nanos)));
+    }
+
+    /**
+     * @return 记录的次数
+     */
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            count += buckets.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * 计算分位值
+     *
+     * @param percentile 分位，取值0到1
+     * @return 分位值所在桶的下界（纳秒），没有记录时返回0
+     */
+    public long percentile(double percentile) {
+        long count = count();
+        if (count == 0) {
+            return 0L;
+        }
+        long rank = (long) Math.ceil(percentile * count);
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= rank && seen > 0) {
+                return lowerBound(i);
+            }
+        }
+        return lowerBound(buckets.length() - 1);
+    }
+
+    private static int index(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    private static long lowerBound(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int exponent = index / SUB_COUNT + SUB_BITS - 1;
+        long sub = index % SUB_COUNT;
+        return (SUB_COUNT + sub) << (exponent - SUB_BITS);
+    }
+}
@@ -0,0 +1,75 @@
+package com.lb.im.sdk.simulator;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 压测场景的结果
+ */
+public class ScenarioReport {
+
+    private final SimulationScenario scenario;
+
+    private final long elapsedNanos;
+
+    private final LatencyHistogram sendLatency;
+
+    private final LatencyHistogram deliveryLatency;
+
+    private final long envelopes;
+
+    private final long receivers;
+
+    private final long redisRoundTrips;
+
+    private final long allocatedBytes;
+
+    public ScenarioReport(SimulationScenario scenario, long elapsedNanos, LatencyHistogram sendLatency,
+                          LatencyHistogram deliveryLatency, long envelopes, long receivers,
+                          long redisRoundTrips, long allocatedBytes) {
+        this.scenario = scenario;
+        this.elapsedNanos = elapsedNanos;
+        this.sendLatency = sendLatency;
+        this.deliveryLatency = deliveryLatency;
+        this.envelopes = envelopes;
+        this.receivers = receivers;
+        this.redisRoundTrips = redisRoundTrips;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * 输出结果
+     */
+    public void print(PrintStream out) {
+        long messages = Math.max(1, scenario.getMessages());
+        double seconds = elapsedNanos / 1e9;
+        out.println("==== " + scenario.getName() + " ====");
+        out.println("场景参数: " + scenario);
+        out.printf("吞吐量: %.0f 条/秒（%d 条，耗时 %.2f 秒）%n", messages / seconds, messages, seconds);
+        out.printf("每条消息: 信封 %.2f 个，接收终端 %.2f 个，Redis往返 %.2f 次%n",
+                (double) envelopes / messages, (double) receivers / messages, (double) redisRoundTrips / messages);
+        out.printf("发送耗时(微秒): p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f%n",
+                micros(sendLatency.percentile(0.5)), micros(sendLatency.percentile(0.9)),
+                micros(sendLatency.percentile(0.99)), micros(sendLatency.percentile(0.999)));
+        if (deliveryLatency.count() > 0) {
+            out.printf("投递回执延迟(毫秒): p50=%.2f p99=%.2f p99.9=%.2f（%d 个结果）%n",
+                    millis(deliveryLatency.percentile(0.5)), millis(deliveryLatency.percentile(0.99)),
+                    millis(deliveryLatency.percentile(0.999)), deliveryLatency.count());
+        }
+        if (allocatedBytes > 0) {
+            out.printf("发送线程分配: %.0f 字节/条，%.1f MB/秒%n",
+                    (double) allocatedBytes / messages, allocatedBytes / seconds / (1024 * 1024));
+        } else {
+            out.println("发送线程分配: 当前JVM不支持按线程统计");
+        }
+        out.println();
+    }
+
+    private static double micros(long nanos) {
+        return nanos / (double) TimeUnit.MICROSECONDS.toNanos(1);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,239 @@
+package com.lb.im.sdk.simulator;
+
+import com.lb.im.common.cache.distribute.DistributedCacheService;
+import com.lb.im.common.domain.enums.IMTerminalType;
+import com.lb.im.common.domain.model.IMGroupMessage;
+import com.lb.im.common.domain.model.IMPrivateMessage;
+import com.lb.im.common.domain.model.IMUserInfo;
+import com.lb.im.common.mq.MessageSenderService;
+import com.lb.im.sdk.IMAutoConfiguration;
+import com.lb.im.sdk.application.consumer.GroupMessageResultConsumer;
+import com.lb.im.sdk.application.consumer.PrivateMessageResultConsumer;
+import com.lb.im.sdk.client.IMClient;
+import com.lb.im.sdk.domain.model.IMBroadcastMessage;
+import com.lb.im.sdk.infrastructure.route.IMRouteRepository;
+import com.lb.im.sdk.infrastructure.server.IMServerRegistry;
+import com.lb.im.sdk.simulator.standin.InMemoryIMRouteRepository;
+import com.lb.im.sdk.simulator.standin.SimulatedMessageBroker;
+import com.lb.im.sdk.simulator.standin.StandIns;
+import com.lb.im.sdk.simulator.standin.StaticIMServerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 压测场景执行器
+ * <p>
+ * 每个场景使用独立的Spring容器：外部依赖（Redis路由、消息队列、服务端注册表）先注册为替身，
+ * 再注册SDK的自动配置，SDK的其余组件都是真实实现。
+ * 发送线程预先生成消息，压测阶段只调用IMClient，分配字节数只统计发送线程。
+ */
+public class ScenarioRunner {
+
+    /**
+     * 每个发送线程预先生成的消息数，循环使用
+     */
+    private static final int MESSAGE_POOL_SIZE = 256;
+
+    private static final int PRIVATE = 0;
+
+    private static final int GROUP = 1;
+
+    private static final int BROADCAST = 2;
+
+    /**
+     * 执行场景
+     *
+     * @param scenario 压测场景
+     * @return 压测结果
+     */
+    public ScenarioReport run(SimulationScenario scenario) throws InterruptedException {
+        LongAdder redisRoundTrips = new LongAdder();
+        SimulatedMessageBroker broker = new SimulatedMessageBroker(Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+        InMemoryIMRouteRepository routeRepository = new InMemoryIMRouteRepository(scenario, redisRoundTrips);
+
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            Map<String, Object> properties = new HashMap<>();
+            // 启用结果消费者，只保留普通通道
+            properties.put("message.mq.type", "rocketmq");
+            properties.put("im.sdk.consumer.priority-lanes-enabled", "false");
+            properties.putAll(scenario.getSdkProperties());
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("simulator", properties));
+
+            // 替身必须先于自动配置注册，SDK的默认实现才会让位
+            context.registerBean(SimpleMeterRegistry.class, SimpleMeterRegistry::new);
+            context.registerBean(RedisConnectionFactory.class, StandIns::redisConnectionFactory);
+            context.registerBean(DistributedCacheService.class, () -> StandIns.distributedCacheService(redisRoundTrips));
+            context.registerBean(MessageSenderService.class, () -> StandIns.messageSenderService(broker));
+            context.registerBean(IMRouteRepository.class, () -> routeRepository);
+            context.registerBean(IMServerRegistry.class, () -> new StaticIMServerRegistry(scenario.getServers()));
+            context.register(IMAutoConfiguration.class);
+            context.refresh();
+
+            broker.bind(context.getBean(PrivateMessageResultConsumer.class), context.getBean(GroupMessageResultConsumer.class));
+            IMClient imClient = context.getBean(IMClient.class);
+
+            // 预热，结果不计入统计
+            this.drive(imClient, scenario, scenario.getWarmupMessages(), new LatencyHistogram(), new AtomicLong());
+            broker.awaitIdle();
+            broker.reset();
+            redisRoundTrips.reset();
+
+            LatencyHistogram sendLatency = new LatencyHistogram();
+            AtomicLong allocatedBytes = new AtomicLong();
+            long elapsedNanos = this.drive(imClient, scenario, scenario.getMessages(), sendLatency, allocatedBytes);
+            broker.awaitIdle();
+
+            return new ScenarioReport(scenario, elapsedNanos, sendLatency, broker.getDeliveryLatency(),
+                    broker.getEnvelopes(), broker.getReceivers(), redisRoundTrips.sum(), allocatedBytes.get());
+        } finally {
+            broker.shutdown();
+        }
+    }
+
+    /**
+     * 多线程发送指定数量的消息
+     *
+     * @return 从第一个线程开始发送到最后一个线程发送完的耗时（纳秒）
+     */
+    private long drive(IMClient imClient, SimulationScenario scenario, int messages, LatencyHistogram sendLatency,
+                       AtomicLong allocatedBytes) throws InterruptedException {
+        int threads = Math.max(1, scenario.getThreads());
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            int quota = messages / threads + (t < messages % threads ? 1 : 0);
+            long seed = 31L * t + 7;
+            Thread worker = new Thread(() -> {
+                try {
+                    Object[] pool = this.buildMessages(scenario, new Random(seed));
+                    ready.countDown();
+                    start.await();
+
+                    long allocatedBefore = allocatedBytes();
+                    for (int i = 0; i < quota; i++) {
+                        Object message = pool[i % pool.length];
+                        long begin = System.nanoTime();
+                        this.send(imClient, message);
+                        sendLatency.record(System.nanoTime() - begin);
+                    }
+                    long allocatedAfter = allocatedBytes();
+                    if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+                        allocatedBytes.addAndGet(allocatedAfter - allocatedBefore);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "im-simulator-sender-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+
+        ready.await();
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        return System.nanoTime() - begin;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void send(IMClient imClient, Object message) {
+        if (message instanceof IMPrivateMessage) {
+            imClient.sendPrivateMessage((IMPrivateMessage<String>) message);
+        } else if (message instanceof IMGroupMessage) {
+            imClient.sendGroupMessage((IMGroupMessage<String>) message);
+        } else {
+            imClient.broadcast((IMBroadcastMessage<String>) message);
+        }
+    }
+
+    /**
+     * 按场景的发送组合预先生成消息
+     */
+    private Object[] buildMessages(SimulationScenario scenario, Random random) {
+        List<Integer> terminals = IMTerminalType.getAllCode();
+        StringBuilder payload = new StringBuilder(scenario.getPayloadChars());
+        for (int i = 0; i < scenario.getPayloadChars(); i++) {
+            payload.append((char) ('a' + random.nextInt(26)));
+        }
+        String data = payload.toString();
+
+        Object[] pool = new Object[MESSAGE_POOL_SIZE];
+        for (int i = 0; i < pool.length; i++) {
+            IMUserInfo sender = new IMUserInfo((long) random.nextInt(scenario.getUsers()),
+                    terminals.get(random.nextInt(terminals.size())));
+            switch (this.nextKind(scenario, random)) {
+                case PRIVATE:
+                    IMPrivateMessage<String> privateMessage = new IMPrivateMessage<>();
+                    privateMessage.setSender(sender);
+                    privateMessage.setReceiveId((long) random.nextInt(scenario.getUsers()));
+                    privateMessage.setReceiveTerminals(terminals);
+                    privateMessage.setSendToSelf(true);
+                    privateMessage.setSendResult(true);
+                    privateMessage.setData(data);
+                    pool[i] = privateMessage;
+                    break;
+                case GROUP:
+                    List<Long> receiveIds = new ArrayList<>(scenario.getGroupSize());
+                    for (int m = 0; m < scenario.getGroupSize(); m++) {
+                        receiveIds.add((long) random.nextInt(scenario.getUsers()));
+                    }
+                    IMGroupMessage<String> groupMessage = new IMGroupMessage<>();
+                    groupMessage.setSender(sender);
+                    groupMessage.setReceiveIds(receiveIds);
+                    groupMessage.setReceiveTerminals(terminals);
+                    groupMessage.setSendResult(true);
+                    groupMessage.setData(data);
+                    pool[i] = groupMessage;
+                    break;
+                default:
+                    IMBroadcastMessage<String> broadcastMessage = new IMBroadcastMessage<>();
+                    broadcastMessage.setSender(sender);
+                    broadcastMessage.setData(data);
+                    pool[i] = broadcastMessage;
+                    break;
+            }
+        }
+        return pool;
+    }
+
+    private int nextKind(SimulationScenario scenario, Random random) {
+        double r = random.nextDouble();
+        if (r < scenario.getPrivateRatio()) {
+            return PRIVATE;
+        }
+        if (r < scenario.getPrivateRatio() + scenario.getGroupRatio()) {
+            return GROUP;
+        }
+        return BROADCAST;
+    }
+
+    /**
+     * 当前线程累计分配的字节数，JVM不支持时返回-1
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+            if (sunThreadMXBean.isThreadAllocatedMemorySupported() && sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+                return sunThreadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1L;
+    }
+}
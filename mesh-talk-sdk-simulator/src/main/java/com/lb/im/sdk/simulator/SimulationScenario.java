@@ -0,0 +1,238 @@
+package com.lb.im.sdk.simulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 压测场景
+ * <p>
+ * 描述模拟的集群规模、用户在线分布和发送组合。内置场景见{@link #defaults()}，
+ * 命令行参数可以按key=value覆盖任意字段，im.sdk开头的参数直接作为SDK配置传入。
+ */
+public class SimulationScenario {
+
+    /**
+     * 场景名称
+     */
+    private String name;
+
+    /**
+     * 模拟的用户数
+     */
+    private int users = 100000;
+
+    /**
+     * 模拟的IM服务端数
+     */
+    private int servers = 8;
+
+    /**
+     * 每种终端的在线概率，下标与IMTerminalType.getAllCode()的顺序一致，不足的终端按最后一个值
+     */
+    private double[] terminalOnline = {0.3, 0.8, 0.2};
+
+    /**
+     * 私聊消息占比
+     */
+    private double privateRatio = 1.0;
+
+    /**
+     * 群聊消息占比，剩余部分为全员广播
+     */
+    private double groupRatio = 0.0;
+
+    /**
+     * 群成员数
+     */
+    private int groupSize = 200;
+
+    /**
+     * 载荷大小（字符数）
+     */
+    private int payloadChars = 256;
+
+    /**
+     * 发送线程数
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 压测阶段发送的消息总数
+     */
+    private int messages = 200000;
+
+    /**
+     * 预热阶段发送的消息总数，不计入结果
+     */
+    private int warmupMessages = 20000;
+
+    /**
+     * 模拟的Redis单次往返耗时（微秒），0表示不等待
+     */
+    private int redisLatencyMicros = 0;
+
+    /**
+     * 传给SDK的配置，例如im.sdk.compression.enabled=true
+     */
+    private final Map<String, Object> sdkProperties = new HashMap<>();
+
+    public SimulationScenario(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 内置场景
+     * 1. private - 一对一私聊，发送者多终端同步
+     * 2. group-small - 50人小群
+     * 3. group-large - 2000人大群
+     * 4. mixed - 私聊为主，夹杂群聊和少量全员广播
+     */
+    public static List<SimulationScenario> defaults() {
+        List<SimulationScenario> scenarios = new ArrayList<>();
+
+        scenarios.add(new SimulationScenario("private"));
+
+        SimulationScenario groupSmall = new SimulationScenario("group-small");
+        groupSmall.privateRatio = 0.0;
+        groupSmall.groupRatio = 1.0;
+        groupSmall.groupSize = 50;
+        groupSmall.messages = 100000;
+        groupSmall.warmupMessages = 10000;
+        scenarios.add(groupSmall);
+
+        SimulationScenario groupLarge = new SimulationScenario("group-large");
+        groupLarge.privateRatio = 0.0;
+        groupLarge.groupRatio = 1.0;
+        groupLarge.groupSize = 2000;
+        groupLarge.messages = 5000;
+        groupLarge.warmupMessages = 500;
+        scenarios.add(groupLarge);
+
+        SimulationScenario mixed = new SimulationScenario("mixed");
+        mixed.privateRatio = 0.8;
+        mixed.groupRatio = 0.18;
+        mixed.messages = 100000;
+        mixed.warmupMessages = 10000;
+        scenarios.add(mixed);
+
+        return scenarios;
+    }
+
+    /**
+     * 按key=value覆盖场景字段
+     *
+     * @param key   字段名，im.sdk开头时作为SDK配置
+     * @param value 字段值
+     */
+    public void set(String key, String value) {
+        if (key.startsWith("im.sdk.")) {
+            sdkProperties.put(key, value);
+            return;
+        }
+        switch (key) {
+            case "users":
+                users = Integer.parseInt(value);
+                break;
+            case "servers":
+                servers = Integer.parseInt(value);
+                break;
+            case "terminalOnline":
+                terminalOnline = Arrays.stream(value.split(",")).mapToDouble(Double::parseDouble).toArray();
+                break;
+            case "privateRatio":
+                privateRatio = Double.parseDouble(value);
+                break;
+            case "groupRatio":
+                groupRatio = Double.parseDouble(value);
+                break;
+            case "groupSize":
+                groupSize = Integer.parseInt(value);
+                break;
+            case "payloadChars":
+                payloadChars = Integer.parseInt(value);
+                break;
+            case "threads":
+                threads = Integer.parseInt(value);
+                break;
+            case "messages":
+                messages = Integer.parseInt(value);
+                break;
+            case "warmupMessages":
+                warmupMessages = Integer.parseInt(value);
+                break;
+            case "redisLatencyMicros":
+                redisLatencyMicros = Integer.parseInt(value);
+                break;
+            default:
+                throw new IllegalArgumentException("未知的场景参数:" + key);
+        }
+    }
+
+    /**
+     * 获取终端的在线概率
+     *
+     * @param index 终端在IMTerminalType.getAllCode()中的下标
+     */
+    public double getTerminalOnline(int index) {
+        return terminalOnline[Math.min(index, terminalOnline.length - 1)];
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    public int getServers() {
+        return servers;
+    }
+
+    public double getPrivateRatio() {
+        return privateRatio;
+    }
+
+    public double getGroupRatio() {
+        return groupRatio;
+    }
+
+    public int getGroupSize() {
+        return groupSize;
+    }
+
+    public int getPayloadChars() {
+        return payloadChars;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getMessages() {
+        return messages;
+    }
+
+    public int getWarmupMessages() {
+        return warmupMessages;
+    }
+
+    public int getRedisLatencyMicros() {
+        return redisLatencyMicros;
+    }
+
+    public Map<String, Object> getSdkProperties() {
+        return sdkProperties;
+    }
+
+    @Override
+    public String toString() {
+        return name + "{users=" + users + ", servers=" + servers + ", terminalOnline=" + Arrays.toString(terminalOnline)
+                + ", privateRatio=" + privateRatio + ", groupRatio=" + groupRatio + ", groupSize=" + groupSize
+                + ", payloadChars=" + payloadChars + ", threads=" + threads + ", messages=" + messages
+                + ", redisLatencyMicros=" + redisLatencyMicros + ", sdkProperties=" + sdkProperties + "}";
+    }
+}
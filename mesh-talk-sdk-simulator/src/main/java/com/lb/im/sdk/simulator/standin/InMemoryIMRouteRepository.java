@@ -0,0 +1,105 @@
+package com.lb.im.sdk.simulator.standin;
+
+import com.lb.im.common.domain.enums.IMTerminalType;
+import com.lb.im.sdk.infrastructure.route.IMRouteRepository;
+import com.lb.im.sdk.simulator.SimulationScenario;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 内存中的用户路由数据，替代Redis
+ * <p>
+ * 启动时按场景的在线概率为每个用户的每种终端随机分配服务端，之后不再变化。
+ * 每次方法调用对应真实实现的一次Redis往返（GET或MGET），计入往返次数，
+ * 并按场景配置等待模拟的网络耗时。
+ */
+public class InMemoryIMRouteRepository implements IMRouteRepository {
+
+    /**
+     * 用户数
+     */
+    private final int users;
+
+    /**
+     * 终端编码的上界，路由表按 userId * terminalSlots + terminal 定位
+     */
+    private final int terminalSlots;
+
+    /**
+     * 路由表，值为服务端ID或NOT_ONLINE
+     */
+    private final int[] routes;
+
+    /**
+     * 模拟的单次往返耗时（纳秒）
+     */
+    private final long latencyNanos;
+
+    /**
+     * Redis往返次数
+     */
+    private final LongAdder roundTrips;
+
+    public InMemoryIMRouteRepository(SimulationScenario scenario, LongAdder roundTrips) {
+        this.users = scenario.getUsers();
+        this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(scenario.getRedisLatencyMicros());
+        this.roundTrips = roundTrips;
+
+        List<Integer> terminals = IMTerminalType.getAllCode();
+        int maxTerminal = 0;
+        for (Integer terminal : terminals) {
+            maxTerminal = Math.max(maxTerminal, terminal);
+        }
+        this.terminalSlots = maxTerminal + 1;
+        this.routes = new int[users * terminalSlots];
+
+        Random random = new Random(42);
+        for (int userId = 0; userId < users; userId++) {
+            for (int t = 0; t < terminalSlots; t++) {
+                routes[userId * terminalSlots + t] = NOT_ONLINE;
+            }
+            for (int i = 0; i < terminals.size(); i++) {
+                if (random.nextDouble() < scenario.getTerminalOnline(i)) {
+                    routes[userId * terminalSlots + terminals.get(i)] = random.nextInt(scenario.getServers());
+                }
+            }
+        }
+    }
+
+    @Override
+    public int getServerId(long userId, int terminal) {
+        this.roundTrip();
+        return this.lookup(userId, terminal);
+    }
+
+    @Override
+    public int[] getServerIds(long[] userIds, int[] terminals) {
+        int[] serverIds = new int[userIds.length];
+        if (userIds.length == 0) {
+            return serverIds;
+        }
+        this.roundTrip();
+        for (int i = 0; i < userIds.length; i++) {
+            serverIds[i] = this.lookup(userIds[i], terminals[i]);
+        }
+        return serverIds;
+    }
+
+    private int lookup(long userId, int terminal) {
+        if (userId < 0 || userId >= users || terminal < 0 || terminal >= terminalSlots) {
+            return NOT_ONLINE;
+        }
+        return routes[(int) userId * terminalSlots + terminal];
+    }
+
+    private void roundTrip() {
+        roundTrips.increment();
+        if (latencyNanos > 0) {
+            LockSupport.parkNanos(latencyNanos);
+        }
+    }
+}
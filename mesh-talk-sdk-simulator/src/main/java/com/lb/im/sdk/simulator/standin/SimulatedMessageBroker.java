@@ -0,0 +1,169 @@
+package com.lb.im.sdk.simulator.standin;
+
+import com.alibaba.fastjson.JSONObject;
+import com.lb.im.common.domain.constans.IMConstants;
+import com.lb.im.common.domain.enums.IMCmdType;
+import com.lb.im.common.domain.enums.IMSendCode;
+import com.lb.im.common.domain.model.IMReceiveInfo;
+import com.lb.im.common.domain.model.IMUserInfo;
+import com.lb.im.sdk.domain.model.IMStampedReceiveInfo;
+import com.lb.im.sdk.simulator.LatencyHistogram;
+import org.apache.rocketmq.spring.core.RocketMQListener;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 模拟的消息队列和IM服务端
+ * <p>
+ * 作为MessageSenderService的替身接收SDK发出的信封，由模拟的服务端线程处理：
+ * 需要回执的信封为每个接收者生成发送成功的结果，按真实结果队列的格式交给SDK的结果消费者，
+ * 从而覆盖投递跟踪、载荷解压和监听器分发的完整链路。
+ * <p>
+ * 服务端线程的队列有界，处理不过来时由发送线程自己处理，相当于消息队列的背压。
+ */
+public class SimulatedMessageBroker {
+
+    /**
+     * 服务端线程的队列长度
+     */
+    private static final int QUEUE_CAPACITY = 65536;
+
+    private final ThreadPoolExecutor serverExecutor;
+
+    /**
+     * 尚未处理完的信封数
+     */
+    private final AtomicLong pending = new AtomicLong();
+
+    /**
+     * 发出的信封数
+     */
+    private final LongAdder envelopes = new LongAdder();
+
+    /**
+     * 信封中的接收者总数
+     */
+    private final LongAdder receivers = new LongAdder();
+
+    /**
+     * 从发送到结果被消费者处理完的延迟
+     */
+    private volatile LatencyHistogram deliveryLatency = new LatencyHistogram();
+
+    private volatile RocketMQListener<String> privateResultConsumer;
+
+    private volatile RocketMQListener<String> groupResultConsumer;
+
+    public SimulatedMessageBroker(int serverThreads) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.serverExecutor = new ThreadPoolExecutor(serverThreads, serverThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                r -> {
+                    Thread thread = new Thread(r, "im-simulated-server-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * 绑定SDK的结果消费者，容器启动后调用
+     */
+    public void bind(RocketMQListener<String> privateResultConsumer, RocketMQListener<String> groupResultConsumer) {
+        this.privateResultConsumer = privateResultConsumer;
+        this.groupResultConsumer = groupResultConsumer;
+    }
+
+    /**
+     * 接收SDK发出的信封
+     *
+     * @param receiveInfo 信封
+     */
+    public void send(IMReceiveInfo receiveInfo) {
+        envelopes.increment();
+        List<IMUserInfo> receiverList = receiveInfo.getReceivers();
+        if (receiverList != null) {
+            receivers.add(receiverList.size());
+        }
+        if (!Boolean.TRUE.equals(receiveInfo.getSendResult()) || !(receiveInfo instanceof IMStampedReceiveInfo)) {
+            return;
+        }
+        pending.incrementAndGet();
+        serverExecutor.execute(() -> {
+            try {
+                this.deliver((IMStampedReceiveInfo) receiveInfo);
+            } finally {
+                pending.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * 模拟服务端投递成功，为每个接收者回送发送结果，带回信封上的消息ID和压缩标记
+     */
+    private void deliver(IMStampedReceiveInfo receiveInfo) {
+        RocketMQListener<String> consumer = IMCmdType.GROUP_MESSAGE.getCode().equals(receiveInfo.getCmd())
+                ? groupResultConsumer : privateResultConsumer;
+        if (consumer == null) {
+            return;
+        }
+        for (IMUserInfo receiver : receiveInfo.getReceivers()) {
+            JSONObject event = new JSONObject();
+            event.put("sender", receiveInfo.getSender());
+            event.put("receiver", receiver);
+            event.put("code", IMSendCode.SUCCESS.getCode());
+            event.put("data", receiveInfo.getData());
+            // 与服务端一致，带回信封上的消息ID
+            event.put("messageId", receiveInfo.getMessageId());
+            if (receiveInfo.getCompression() != null) {
+                event.put("compression", receiveInfo.getCompression());
+            }
+            JSONObject message = new JSONObject();
+            message.put(IMConstants.MSG_KEY, event);
+            consumer.onMessage(message.toJSONString());
+            if (receiveInfo.getSendTime() != null) {
+                deliveryLatency.record(System.nanoTime() - receiveInfo.getSendTime());
+            }
+        }
+    }
+
+    /**
+     * 等待所有信封处理完
+     */
+    public void awaitIdle() throws InterruptedException {
+        while (pending.get() > 0) {
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * 清空统计，预热结束后调用
+     */
+    public void reset() {
+        envelopes.reset();
+        receivers.reset();
+        deliveryLatency = new LatencyHistogram();
+    }
+
+    public void shutdown() {
+        serverExecutor.shutdownNow();
+    }
+
+    public long getEnvelopes() {
+        return envelopes.sum();
+    }
+
+    public long getReceivers() {
+        return receivers.sum();
+    }
+
+    public LatencyHistogram getDeliveryLatency() {
+        return deliveryLatency;
+    }
+}
@@ -0,0 +1,129 @@
+package com.lb.im.sdk.simulator.standin;
+
+import com.lb.im.common.cache.distribute.DistributedCacheService;
+import com.lb.im.common.domain.model.IMReceiveInfo;
+import com.lb.im.common.mq.MessageSenderService;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 外部服务的替身
+ * <p>
+ * 使用JDK动态代理实现公共组件中的服务接口，不依赖这些接口的具体方法签名，
+ * 公共组件升级新增方法时替身仍然可用。
+ */
+public final class StandIns {
+
+    private StandIns() {
+    }
+
+    /**
+     * 分布式缓存服务的替身
+     * 每次调用计为一次Redis往返，返回空值
+     *
+     * @param roundTrips Redis往返次数
+     */
+    public static DistributedCacheService distributedCacheService(LongAdder roundTrips) {
+        return proxy(DistributedCacheService.class, (method, args) -> {
+            roundTrips.increment();
+            return defaultValue(method.getReturnType());
+        });
+    }
+
+    /**
+     * 消息发送服务的替身，信封交给模拟的消息队列
+     *
+     * @param broker 模拟的消息队列
+     */
+    public static MessageSenderService messageSenderService(SimulatedMessageBroker broker) {
+        return proxy(MessageSenderService.class, (method, args) -> {
+            if (args != null && args.length == 1 && args[0] instanceof IMReceiveInfo) {
+                broker.send((IMReceiveInfo) args[0]);
+                return method.getReturnType() == boolean.class || method.getReturnType() == Boolean.class
+                        ? Boolean.TRUE : defaultValue(method.getReturnType());
+            }
+            return defaultValue(method.getReturnType());
+        });
+    }
+
+    /**
+     * Redis连接工厂的替身
+     * 模拟环境中所有Redis访问都由替身完成，获取真实连接说明有组件绕过了替身，直接报错
+     */
+    public static RedisConnectionFactory redisConnectionFactory() {
+        return proxy(RedisConnectionFactory.class, (method, args) -> {
+            throw new UnsupportedOperationException("模拟环境不提供Redis连接:" + method.getName());
+        });
+    }
+
+    /**
+     * 替身的方法实现
+     */
+    private interface Handler {
+
+        Object handle(Method method, Object[] args) throws Throwable;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            // Object自身的方法不转给替身实现
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return type.getSimpleName() + "StandIn";
+                }
+            }
+            return handler.handle(method, args);
+        });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == void.class || !type.isPrimitive()) {
+            if (List.class.isAssignableFrom(type) || type == Collection.class) {
+                return Collections.emptyList();
+            }
+            if (Set.class.isAssignableFrom(type)) {
+                return Collections.emptySet();
+            }
+            if (Map.class.isAssignableFrom(type)) {
+                return Collections.emptyMap();
+            }
+            return null;
+        }
+        if (type == char.class) {
+            return (char) 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == double.class) {
+            return 0D;
+        }
+        if (type == float.class) {
+            return 0F;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        return 0;
+    }
+}
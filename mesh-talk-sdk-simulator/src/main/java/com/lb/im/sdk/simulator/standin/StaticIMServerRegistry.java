@@ -0,0 +1,36 @@
+package com.lb.im.sdk.simulator.standin;
+
+import com.lb.im.sdk.infrastructure.server.IMServerRegistry;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 固定的IM服务端注册表，模拟的所有服务端始终存活
+ */
+public class StaticIMServerRegistry implements IMServerRegistry {
+
+    private final int servers;
+
+    private final Set<Integer> serverIds;
+
+    public StaticIMServerRegistry(int servers) {
+        this.servers = servers;
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (int i = 0; i < servers; i++) {
+            ids.add(i);
+        }
+        this.serverIds = Collections.unmodifiableSet(ids);
+    }
+
+    @Override
+    public Set<Integer> getLiveServerIds() {
+        return serverIds;
+    }
+
+    @Override
+    public boolean isAlive(int serverId) {
+        return serverId >= 0 && serverId < servers;
+    }
+}